@@ -0,0 +1,84 @@
+package com.fabricaescuela.models.dto;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Serialización JSON de las respuestas de listados (páginas de paquetes e
+ * historial de ubicaciones) con la misma configuración de Jackson que Spring Boot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializacionBenchmark {
+
+    @Param({"20", "500"})
+    public int elementos;
+
+    private ObjectWriter paquetesWriter;
+    private ObjectWriter ubicacionesWriter;
+    private List<PaqueteResponseDto> paquetes;
+    private List<HistorialUbicacionResponse> ubicaciones;
+
+    @Setup
+    public void preparar() {
+        var objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        paquetesWriter = objectMapper.writerFor(new TypeReference<List<PaqueteResponseDto>>() { });
+        ubicacionesWriter = objectMapper.writerFor(new TypeReference<List<HistorialUbicacionResponse>>() { });
+
+        paquetes = new ArrayList<>(elementos);
+        ubicaciones = new ArrayList<>(elementos);
+        Instant inicio = Instant.parse("2025-11-20T08:00:00Z");
+        for (int i = 0; i < elementos; i++) {
+            paquetes.add(PaqueteResponseDto.builder()
+                    .id(i)
+                    .codigoPaquete(String.format("PKG-2025-%06d", i))
+                    .remitente("Distribuidora Andina S.A.S.")
+                    .destinatario("María Fernanda Rodríguez")
+                    .destino("Cra. 7 #72-41, Bogotá")
+                    .estadoActual("En Ruta")
+                    .build());
+            ubicaciones.add(HistorialUbicacionResponse.builder()
+                    .id(i)
+                    .codigoPaquete("PKG-2025-000101")
+                    .ubicacion("4.6533,-74.0836")
+                    .fechaRegistro(inicio.plusSeconds(180L * i))
+                    .build());
+        }
+    }
+
+    @Benchmark
+    public byte[] paquetes() throws JsonProcessingException {
+        return paquetesWriter.writeValueAsBytes(paquetes);
+    }
+
+    @Benchmark
+    public byte[] ubicaciones() throws JsonProcessingException {
+        return ubicacionesWriter.writeValueAsBytes(ubicaciones);
+    }
+}
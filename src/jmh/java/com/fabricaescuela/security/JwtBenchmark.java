@@ -0,0 +1,83 @@
+package com.fabricaescuela.security;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Costo de autenticar una petición: verificación completa del JWT (firma HMAC +
+ * JSON), verificación con el principal en caché y el filtro de rutas públicas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtBenchmark {
+
+    private static final String SECRETO = "mySecretKeyForJWTTokenGenerationThatIsLongEnough123456789";
+
+    // Solo para los benchmarks de rutas: no multiplica los de verificación
+    @State(Scope.Benchmark)
+    public static class Rutas {
+
+        @Param({"/api/paquetes/PKG-2025-000101", "/api/paquetes/estado/lote", "/swagger-ui/index.html"})
+        public String ruta;
+    }
+
+    private JwtUtil jwtUtil;
+    private String token;
+
+    @Setup
+    public void preparar() {
+        jwtUtil = new JwtUtil(SECRETO, 10_000, Duration.ofHours(1));
+        token = Jwts.builder()
+                .subject("escaner-bodega-01")
+                .claim("role", "OPERADOR")
+                .claim("permisos", List.of("paquetes:leer", "paquetes:escribir", "ubicaciones:escribir"))
+                .issuedAt(new Date())
+                .expiration(Date.from(Instant.now().plus(Duration.ofHours(8))))
+                .signWith(Keys.hmacShaKeyFor(SECRETO.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+        jwtUtil.verificar(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal verificarSinCache() {
+        return jwtUtil.parsear(token);
+    }
+
+    @Benchmark
+    public JwtPrincipal verificarConCache() {
+        return jwtUtil.verificar(token);
+    }
+
+    @Benchmark
+    public boolean rutaPublicaGet(Rutas rutas) {
+        return JwtAuthenticationFilter.esRutaPublica("GET", rutas.ruta);
+    }
+
+    @Benchmark
+    public boolean rutaPublicaPost(Rutas rutas) {
+        return JwtAuthenticationFilter.esRutaPublica("POST", rutas.ruta);
+    }
+}
@@ -0,0 +1,104 @@
+package com.fabricaescuela.service;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.fabricaescuela.models.dto.PaqueteResponseDto;
+import com.fabricaescuela.models.dto.PaqueteResumen;
+import com.fabricaescuela.models.entity.Estado;
+import com.fabricaescuela.models.entity.Paquete;
+import com.fabricaescuela.repository.EstadoRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Métodos de PaqueteServiceImpl que corren en cada consulta de paquete sin tocar
+ * la base de datos: clasificación del estado con el catálogo en memoria y mapeo a DTO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PaqueteServiceBenchmark {
+
+    private PaqueteServiceImpl servicio;
+    private Paquete paquete;
+    private Estado enRuta;
+    private Estado entregado;
+    private PaqueteResumen resumen;
+
+    @Setup
+    public void preparar() {
+        enRuta = estado(2, "En Ruta");
+        entregado = estado(5, "ENTREGADO");
+        EstadoRepository estadoRepository = mock(EstadoRepository.class);
+        when(estadoRepository.findAll()).thenReturn(List.of(estado(1, "REGISTRADO"), enRuta, estado(3, "EN_BODEGA"),
+                estado(4, "En transito"), entregado, estado(6, "Perdido")));
+        EstadoCatalogo catalogo = new EstadoCatalogo(estadoRepository);
+        catalogo.afterSingletonsInstantiated();
+
+        // Solo se usan métodos sin acceso a datos: el resto de dependencias queda en null
+        servicio = new PaqueteServiceImpl(null, null, catalogo, null, null, null, new ObjectMapper(),
+                mock(PlatformTransactionManager.class), 3);
+
+        paquete = new Paquete();
+        paquete.setId(101);
+        paquete.setCodigoPaquete("PKG-2025-000101");
+        paquete.setRemitente("Distribuidora Andina S.A.S.");
+        paquete.setDestinatario("María Fernanda Rodríguez");
+        paquete.setDestino("Cra. 7 #72-41, Bogotá");
+        paquete.setFechaRegistro(LocalDate.of(2025, 11, 20));
+        paquete.setIdEstadoActual(enRuta);
+
+        resumen = new Resumen(101, "PKG-2025-000101", "Distribuidora Andina S.A.S.", "María Fernanda Rodríguez",
+                "Cra. 7 #72-41, Bogotá", "En Ruta");
+    }
+
+    @Benchmark
+    public boolean esEstadoEnRuta() {
+        return servicio.esEstadoEnRuta(enRuta);
+    }
+
+    @Benchmark
+    public boolean esEstadoEnRutaEntregado() {
+        return servicio.esEstadoEnRuta(entregado);
+    }
+
+    @Benchmark
+    public PaqueteResponseDto mapearEntidad() {
+        return servicio.mapToDto(paquete, paquete.getIdEstadoActual());
+    }
+
+    @Benchmark
+    public PaqueteResponseDto mapearResumen() {
+        return servicio.mapToDto(resumen);
+    }
+
+    private static Estado estado(int id, String nombre) {
+        Estado estado = new Estado();
+        estado.setId(id);
+        estado.setNombreEstado(nombre);
+        return estado;
+    }
+
+    private record Resumen(Integer getId, String getCodigoPaquete, String getRemitente, String getDestinatario,
+                           String getDestino, String getEstadoActual) implements PaqueteResumen {
+    }
+}
@@ -0,0 +1,42 @@
+package com.fabricaescuela.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/**
+ * Cachés locales (Caffeine) de las consultas públicas de paquetes.
+ * <p>
+ * Las escrituras y los borrados se aplican después del commit de la transacción
+ * en curso, así una lectura concurrente no vuelve a guardar datos anteriores al
+ * cambio. Las estadísticas (aciertos, fallos, desalojos) se publican en
+ * {@code /actuator/metrics/cache.gets} y {@code /actuator/metrics/cache.evictions}.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String PAQUETES_POR_CODIGO = "paquetesPorCodigo";
+    public static final String PAQUETES_EN_RUTA_POR_CODIGO = "paquetesEnRutaPorCodigo";
+
+    @Bean
+    public CacheManager cacheManager(@Value("${inventario.cache.paquetes.maximo:10000}") long maximo,
+                                     @Value("${inventario.cache.paquetes.ttl:60s}") Duration ttl) {
+        // Nombres fijos: no se crean cachés nuevas en tiempo de ejecución
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(PAQUETES_POR_CODIGO, PAQUETES_EN_RUTA_POR_CODIGO);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maximo)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
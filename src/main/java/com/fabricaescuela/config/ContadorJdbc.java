@@ -0,0 +1,60 @@
+package com.fabricaescuela.config;
+
+import java.util.List;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.MethodExecutionContext;
+import net.ttddyy.dsproxy.listener.lifecycle.JdbcLifecycleEventListenerAdapter;
+
+/**
+ * Cuenta las sentencias JDBC y las filas leídas en el hilo actual mientras haya
+ * una medición abierta con {@link #iniciar()}. Fuera de una petición (tareas
+ * programadas, cola de escritura diferida, migraciones) no cuenta nada.
+ * <p>
+ * Un lote ({@code executeBatch}) cuenta como una sentencia: se mide la cantidad
+ * de idas y vueltas a la base de datos, que es lo que delata un N+1.
+ */
+class ContadorJdbc extends JdbcLifecycleEventListenerAdapter {
+
+    private static final ThreadLocal<Medicion> MEDICION_ACTUAL = new ThreadLocal<>();
+
+    static final class Medicion {
+        private long sentencias;
+        private long filas;
+
+        long sentencias() {
+            return sentencias;
+        }
+
+        long filas() {
+            return filas;
+        }
+    }
+
+    static Medicion iniciar() {
+        Medicion medicion = new Medicion();
+        MEDICION_ACTUAL.set(medicion);
+        return medicion;
+    }
+
+    static void terminar() {
+        MEDICION_ACTUAL.remove();
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Medicion medicion = MEDICION_ACTUAL.get();
+        if (medicion != null) {
+            medicion.sentencias++;
+        }
+    }
+
+    @Override
+    public void afterNext(MethodExecutionContext executionContext) {
+        Medicion medicion = MEDICION_ACTUAL.get();
+        if (medicion != null && Boolean.TRUE.equals(executionContext.getResult())) {
+            medicion.filas++;
+        }
+    }
+}
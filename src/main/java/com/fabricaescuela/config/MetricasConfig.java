@@ -0,0 +1,58 @@
+package com.fabricaescuela.config;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+
+/**
+ * Métricas propias de la aplicación, además de las de Actuator:
+ * <ul>
+ *   <li>{@value #TIEMPO_SERVICIOS}: duración de cada método de los servicios
+ *       anotados con {@code @Timed}, etiquetada por clase y método.</li>
+ *   <li>{@value MetricasJdbcFilter#SENTENCIAS} y {@value MetricasJdbcFilter#FILAS}:
+ *       sentencias JDBC ejecutadas y filas leídas por petición, etiquetadas por
+ *       endpoint. Un N+1 se ve como un salto en las sentencias por petición.</li>
+ * </ul>
+ * Percentiles e histogramas se configuran con {@code management.metrics.distribution.*}.
+ */
+@Configuration
+public class MetricasConfig {
+
+    public static final String TIEMPO_SERVICIOS = "inventario.servicio";
+
+    /**
+     * Envuelve el pool de conexiones con datasource-proxy para contar sentencias y
+     * filas. Estático para que se registre antes de crear el {@code DataSource}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "inventario.metricas.jdbc.habilitada", havingValue = "true", matchIfMissing = true)
+    static BeanPostProcessor contadorJdbcDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof ProxyDataSource)) {
+                    return ProxyDataSourceBuilder.create(beanName, dataSource)
+                            .listener(new ContadorJdbc())
+                            .proxyResultSet()
+                            .build();
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "inventario.metricas.jdbc.habilitada", havingValue = "true", matchIfMissing = true)
+    FilterRegistrationBean<MetricasJdbcFilter> metricasJdbcFilter(MeterRegistry meterRegistry) {
+        return new FilterRegistrationBean<>(new MetricasJdbcFilter(meterRegistry));
+    }
+}
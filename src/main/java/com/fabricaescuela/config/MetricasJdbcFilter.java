@@ -0,0 +1,66 @@
+package com.fabricaescuela.config;
+
+import java.io.IOException;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Publica cuántas sentencias JDBC ejecutó y cuántas filas leyó cada petición,
+ * con las mismas etiquetas {@code method} y {@code uri} (patrón del endpoint)
+ * que {@code http.server.requests} para cruzarlas en un mismo panel.
+ * <p>
+ * Las peticiones que no llegan a un controlador (404, rechazadas por seguridad)
+ * no se registran. El cuerpo de {@code StreamingResponseBody} se escribe en otro
+ * hilo y tampoco se cuenta.
+ * <p>
+ * La medición queda en el atributo {@link #MEDICION} de la petición para que las
+ * pruebas verifiquen el presupuesto de sentencias de cada endpoint.
+ */
+class MetricasJdbcFilter extends OncePerRequestFilter {
+
+    static final String SENTENCIAS = "inventario.jdbc.sentencias";
+    static final String FILAS = "inventario.jdbc.filas";
+    static final String MEDICION = MetricasJdbcFilter.class.getName() + ".MEDICION";
+
+    private final MeterRegistry meterRegistry;
+
+    MetricasJdbcFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContadorJdbc.Medicion medicion = ContadorJdbc.iniciar();
+        request.setAttribute(MEDICION, medicion);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ContadorJdbc.terminar();
+            if (request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE) instanceof String uri) {
+                registrar(SENTENCIAS, "Sentencias JDBC ejecutadas por petición", request.getMethod(), uri,
+                        medicion.sentencias());
+                registrar(FILAS, "Filas leídas de la base de datos por petición", request.getMethod(), uri,
+                        medicion.filas());
+            }
+        }
+    }
+
+    private void registrar(String nombre, String descripcion, String metodo, String uri, long valor) {
+        DistributionSummary.builder(nombre)
+                .description(descripcion)
+                .tag("method", metodo)
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(valor);
+    }
+}
@@ -1,21 +1,29 @@
 package com.fabricaescuela.controllers;
 
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fabricaescuela.models.dto.PaginaCursor;
 import com.fabricaescuela.models.entity.HistorialEstado;
 import com.fabricaescuela.service.HistorialEstadoService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
 @RestController
@@ -29,10 +37,15 @@ public class HistorialEstadoController {
         this.historialEstadoService = historialEstadoService;
     }
 
-    @Operation(summary = "Obtener todos los historiales de estados")
+    @Operation(summary = "Obtener todos los historiales de estados",
+            description = "Retorna los historiales paginados por cursor; use el valor `next` de la respuesta para continuar")
     @GetMapping
-    public ResponseEntity<List<HistorialEstado>> obtenerTodos() {
-        return ResponseEntity.ok(historialEstadoService.findAll());
+    public ResponseEntity<PaginaCursor<HistorialEstado>> obtenerTodos(
+            @Parameter(description = "Cursor opaco devuelto en `next` por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de registros por página (por defecto 50, máximo 500)", example = "50")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(historialEstadoService.findPagina(cursor, limit));
     }
 
     @Operation(summary = "Obtener historial por ID")
@@ -108,4 +121,13 @@ public class HistorialEstadoController {
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    // El paquete del historial cambió en otra transacción a la vez (bloqueo optimista)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> manejarConflicto(OptimisticLockingFailureException e) {
+        Map<String, String> error = new HashMap<>();
+        error.put("error", "El paquete fue modificado por otra operación");
+        error.put("sugerencia", "Consulte el historial nuevamente y repita la operación");
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(error);
+    }
 }
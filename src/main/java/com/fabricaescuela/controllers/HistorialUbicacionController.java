@@ -3,9 +3,11 @@ package com.fabricaescuela.controllers;
 import com.fabricaescuela.models.dto.HistorialUbicacionRequest;
 import com.fabricaescuela.models.dto.HistorialUbicacionResponse;
 import com.fabricaescuela.service.HistorialUbicacionService;
+import com.fabricaescuela.service.PaqueteService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,6 +15,8 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -22,9 +26,12 @@ import java.util.List;
 public class HistorialUbicacionController {
 
     private final HistorialUbicacionService historialUbicacionService;
+    private final PaqueteService paqueteService;
 
-    public HistorialUbicacionController(HistorialUbicacionService historialUbicacionService) {
+    public HistorialUbicacionController(HistorialUbicacionService historialUbicacionService,
+                                        PaqueteService paqueteService) {
         this.historialUbicacionService = historialUbicacionService;
+        this.paqueteService = paqueteService;
     }
 
     @Operation(
@@ -45,32 +52,52 @@ public class HistorialUbicacionController {
             }
             ```
             
+            Con `inventario.ubicaciones.escritura-diferida.habilitada=true` la ubicación se encola
+            y se guarda en el siguiente lote (en milisegundos); la respuesta es 202 y no incluye `id`.
+            
             **Respuestas:**
             - 200: Ubicación registrada exitosamente
+            - 202: Ubicación aceptada en la cola de escritura diferida
             - 400: Datos inválidos
             - 404: Paquete no encontrado
             - 401: No autenticado
+            - 503: Cola de escritura llena; reintentar después de `Retry-After` segundos
             """
     )
     @PostMapping
     public ResponseEntity<HistorialUbicacionResponse> registrarUbicacion(@PathVariable String codigoPaquete,
                                                                          @Valid @RequestBody HistorialUbicacionRequest request) {
-        return ResponseEntity.ok(historialUbicacionService.registrarUbicacion(codigoPaquete, request));
+        HistorialUbicacionResponse respuesta = historialUbicacionService.registrarUbicacion(codigoPaquete, request);
+        // Sin ID: quedó en la cola de escritura diferida
+        HttpStatus estado = respuesta.getId() == null ? HttpStatus.ACCEPTED : HttpStatus.OK;
+        return ResponseEntity.status(estado).body(respuesta);
     }
 
     @Operation(summary = "Consultar historial de ubicaciones",
-            description = "Retorna la lista de ubicaciones del paquete ordenada de la más reciente a la más antigua")
+            description = "Retorna la lista de ubicaciones del paquete ordenada de la más reciente a la más antigua. " +
+                          "Con If-None-Match / If-Modified-Since responde 304 si no hubo cambios")
     @GetMapping
-    public ResponseEntity<List<HistorialUbicacionResponse>> consultarHistorial(@PathVariable String codigoPaquete) {
-        return ResponseEntity.ok(historialUbicacionService.consultarUbicacionesPorCodigo(codigoPaquete));
+    public ResponseEntity<List<HistorialUbicacionResponse>> consultarHistorial(@PathVariable String codigoPaquete,
+                                                                               WebRequest webRequest) {
+        // Sin versión el paquete no existe y el servicio responde 404
+        return paqueteService.consultarVersion(codigoPaquete)
+                .map(version -> RespuestaCondicional.responder(version, webRequest,
+                        () -> historialUbicacionService.consultarUbicacionesPorCodigo(codigoPaquete)))
+                .orElseGet(() -> ResponseEntity.ok(historialUbicacionService.consultarUbicacionesPorCodigo(codigoPaquete)));
     }
 
     @Operation(summary = "Obtener última ubicación registrada",
-            description = "Devuelve la ubicación más reciente registrada para el paquete")
+            description = "Devuelve la ubicación más reciente registrada para el paquete. " +
+                          "Con If-None-Match / If-Modified-Since responde 304 si no hubo cambios")
     @GetMapping("/ultima")
-    public ResponseEntity<HistorialUbicacionResponse> obtenerUltima(@PathVariable String codigoPaquete) {
-        return historialUbicacionService.obtenerUltimaUbicacion(codigoPaquete)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<HistorialUbicacionResponse> obtenerUltima(@PathVariable String codigoPaquete,
+                                                                    WebRequest webRequest) {
+        // Un paquete sin ubicaciones es 404 y no tiene versión: la misma consulta lo comprueba.
+        // Cada nueva ubicación incrementa la versión del paquete, así que basta compararla
+        return historialUbicacionService.consultarVersionUltimaUbicacion(codigoPaquete)
+                .map(version -> RespuestaCondicional.responder(version, webRequest,
+                        () -> historialUbicacionService.obtenerUltimaUbicacion(codigoPaquete)
+                                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete sin ubicaciones"))))
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 }
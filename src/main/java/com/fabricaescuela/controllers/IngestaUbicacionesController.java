@@ -0,0 +1,67 @@
+package com.fabricaescuela.controllers;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.fabricaescuela.models.dto.IngestaUbicacionesResponse;
+import com.fabricaescuela.service.HistorialUbicacionService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@RestController
+@RequestMapping("/api/ubicaciones")
+@Tag(name = "Historial de Ubicaciones", description = "API para registrar y consultar ubicaciones de paquetes")
+public class IngestaUbicacionesController {
+
+    private static final String DESCRIPCION_LOTE = """
+            Registra en una sola petición las ubicaciones enviadas por los rastreadores de los vehículos.
+            El cuerpo se lee en streaming y se guarda por lotes, así que admite cientos de miles de registros.
+            
+            **Formatos:**
+            - `application/json`: arreglo de objetos
+            - `application/x-ndjson`: un objeto por línea
+            
+            **Campos de cada registro:**
+            - codigoPaquete (string): Código del paquete
+            - ubicacion (string): Ubicación actual (max 255 caracteres)
+            - timestamp (string, opcional): Momento de la lectura en ISO-8601; por defecto la hora de recepción
+            
+            **Ejemplo (NDJSON):**
+            ```
+            {"codigoPaquete":"PKG-2025-000101","ubicacion":"4.6533,-74.0836","timestamp":"2025-11-20T14:32:05Z"}
+            {"codigoPaquete":"PKG-2025-000102","ubicacion":"4.6533,-74.0836","timestamp":"2025-11-20T14:32:05Z"}
+            ```
+            
+            Los registros inválidos o de paquetes inexistentes se rechazan sin detener la carga;
+            la respuesta indica la posición (línea o elemento) y el motivo de cada rechazo.
+            
+            **Respuestas:**
+            - 200: Carga procesada (revise `rechazadas`)
+            - 401: No autenticado
+            """;
+
+    private final HistorialUbicacionService historialUbicacionService;
+
+    public IngestaUbicacionesController(HistorialUbicacionService historialUbicacionService) {
+        this.historialUbicacionService = historialUbicacionService;
+    }
+
+    @Operation(summary = "Registrar ubicaciones en lote (arreglo JSON)", description = DESCRIPCION_LOTE)
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<IngestaUbicacionesResponse> registrarLote(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(historialUbicacionService.registrarLote(cuerpo, false));
+    }
+
+    @Operation(summary = "Registrar ubicaciones en lote (NDJSON)", description = DESCRIPCION_LOTE)
+    @PostMapping(value = "/lote", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<IngestaUbicacionesResponse> registrarLoteNdjson(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(historialUbicacionService.registrarLote(cuerpo, true));
+    }
+}
@@ -15,16 +15,20 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import com.fabricaescuela.models.dto.ActualizarNovedadRequest;
 import com.fabricaescuela.models.dto.NovedadRequest;
+import com.fabricaescuela.models.dto.PaginaCursor;
 import com.fabricaescuela.models.entity.Novedad;
 import com.fabricaescuela.models.entity.Paquete;
 import com.fabricaescuela.service.NovedadService;
 import com.fabricaescuela.service.PaqueteService;
 
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 
@@ -144,12 +148,19 @@ public class NovedadController {
         }
     }
 
-    @Operation(summary = "Obtener todas las novedades", description = "Retorna el listado completo de novedades")
+    @Operation(summary = "Obtener todas las novedades",
+            description = "Retorna las novedades paginadas por cursor; use el valor `next` de la respuesta para continuar")
     @PreAuthorize("hasAuthority('NOVEDAD_VIEW')")
     @GetMapping
-    public ResponseEntity<?> obtenerTodasLasNovedades() {
+    public ResponseEntity<?> obtenerTodasLasNovedades(
+        @Parameter(description = "Cursor opaco devuelto en `next` por la página anterior")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Cantidad máxima de novedades por página (por defecto 50, máximo 500)", example = "50")
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
-            List<Novedad> novedades = novedadService.obtenerTodasLasNovedades();
+            PaginaCursor<Novedad> pagina = novedadService.obtenerTodasLasNovedades(cursor, limit);
+            List<Novedad> novedades = pagina.items();
             
             if (novedades.isEmpty()) {
                 Map<String, String> response = new HashMap<>();
@@ -161,8 +172,12 @@ public class NovedadController {
             response.put("mensaje", "Novedades encontradas");
             response.put("cantidad", novedades.size());
             response.put("novedades", novedades);
+            response.put("next", pagina.next());
+            response.put("limit", pagina.limit());
             return ResponseEntity.ok(response);
             
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error al obtener novedades");
@@ -5,11 +5,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -17,10 +23,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fabricaescuela.models.dto.CambioEstadoLoteRequest;
+import com.fabricaescuela.models.dto.PaginaCursor;
+import com.fabricaescuela.models.dto.PaqueteCriteriosBusqueda;
 import com.fabricaescuela.models.dto.PaqueteDireccionUpdateRequest;
 import com.fabricaescuela.models.dto.PaqueteResponseDto;
-import com.fabricaescuela.models.entity.Paquete;
+import com.fabricaescuela.models.dto.VersionPaquete;
+import com.fabricaescuela.service.ConflictoVersionException;
+import com.fabricaescuela.service.CursorPaginacion;
 import com.fabricaescuela.service.PaqueteService;
 
 import io.swagger.v3.oas.annotations.Operation;
@@ -40,20 +54,37 @@ public class PaqueteController {
     }
 
     @Operation(summary = "Consultar todos los paquetes",
-            description = "Retorna la lista de paquetes con su estado actual")
+            description = """
+                Retorna los paquetes con su estado actual, paginados por cursor y ordenados por ID.
+                
+                Para pedir la siguiente página envíe en `cursor` el valor `next` de la respuesta anterior.
+                Cuando `next` es null no hay más resultados.
+                """)
     @GetMapping
-    public ResponseEntity<List<PaqueteResponseDto>> obtenerTodos() {
-        return ResponseEntity.ok(paqueteService.obtenerTodos());
+    public ResponseEntity<PaginaCursor<PaqueteResponseDto>> obtenerTodos(
+            @Parameter(description = "Cursor opaco devuelto en `next` por la página anterior")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Cantidad máxima de paquetes por página (por defecto 50, máximo 500)", example = "50")
+            @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(paqueteService.obtenerTodos(cursor, limit));
     }
 
     @Operation(summary = "Consultar paquete por código",
-            description = "Devuelve información detallada del paquete incluyendo estado actual, historial y novedades")
+            description = """
+                Devuelve información detallada del paquete incluyendo estado actual, historial y novedades.
+                
+                La respuesta incluye `ETag` y `Last-Modified`; si se envían en `If-None-Match` /
+                `If-Modified-Since` y el paquete no cambió, se responde 304 sin cuerpo.
+                """)
     @GetMapping("/{codigo}")
-    public ResponseEntity<?> consultarPorCodigo(@PathVariable String codigo) {
-        Optional<PaqueteResponseDto> paqueteOpt = paqueteService.consultarPorCodigo(codigo);
+    public ResponseEntity<?> consultarPorCodigo(@PathVariable String codigo, WebRequest webRequest) {
+        // Si el paquete tiene versión existe y la respuesta es 200: se valida antes de cargarlo
+        Optional<VersionPaquete> version = paqueteService.consultarVersion(codigo);
         
-        if (paqueteOpt.isPresent()) {
-            return ResponseEntity.ok(paqueteOpt.get());
+        if (version.isPresent()) {
+            return RespuestaCondicional.responder(version.get(), webRequest,
+                    () -> paqueteService.consultarPorCodigo(codigo)
+                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado")));
         } else {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Paquete no encontrado");
@@ -65,13 +96,18 @@ public class PaqueteController {
     }
 
     @Operation(summary = "Consultar paquete en ruta por código",
-        description = "Devuelve la información del paquete únicamente si su estado actual es en ruta")
+        description = "Devuelve la información del paquete únicamente si su estado actual es en ruta. " +
+                      "Admite peticiones condicionales (ETag / Last-Modified) igual que la consulta por código")
     @GetMapping("/en-ruta/{codigo}")
-    public ResponseEntity<?> consultarEnRuta(@PathVariable String codigo) {
-        Optional<PaqueteResponseDto> paqueteOpt = paqueteService.consultarEnRutaPorCodigo(codigo);
+    public ResponseEntity<?> consultarEnRuta(@PathVariable String codigo, WebRequest webRequest) {
+        // Un paquete que existe pero no está en ruta es 404: la versión trae su estado actual,
+        // así que se decide y se valida antes de cargarlo
+        Optional<VersionPaquete> version = paqueteService.consultarVersionEnRuta(codigo);
         
-        if (paqueteOpt.isPresent()) {
-            return ResponseEntity.ok(paqueteOpt.get());
+        if (version.isPresent()) {
+            return RespuestaCondicional.responder(version.get(), webRequest,
+                    () -> paqueteService.consultarEnRutaPorCodigo(codigo)
+                            .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no está en ruta")));
         } else {
             Map<String, Object> error = new HashMap<>();
             error.put("error", "Paquete no encontrado o no está en ruta");
@@ -86,13 +122,15 @@ public class PaqueteController {
         summary = "Buscar paquetes por múltiples criterios",
         description = """
             Permite buscar paquetes usando diferentes criterios de búsqueda.
-            Todos los parámetros son opcionales y se pueden combinar.
+            Todos los parámetros son opcionales y se pueden combinar; solo se filtra por los enviados.
+            Los resultados se paginan con `page` (desde 0) y `size` (por defecto 50, máximo 500).
             
             **Ejemplos de uso:**
             - Buscar por código: `/api/paquetes/buscar?codigoPaquete=PKG-12345`
             - Buscar por fecha: `/api/paquetes/buscar?fechaRegistro=2025-11-17`
+            - Rango de fechas: `/api/paquetes/buscar?fechaDesde=2025-11-01&fechaHasta=2025-11-30`
             - Buscar en tránsito: `/api/paquetes/buscar?nombreEstado=EN_TRANSITO`
-            - Combinar criterios: `/api/paquetes/buscar?fechaRegistro=2025-11-17&nombreEstado=EN_TRANSITO`
+            - Por cliente y ordenado: `/api/paquetes/buscar?idClienteRemitente=15&sort=fechaRegistro,desc`
             
             **Estados válidos:**
             - REGISTRADO
@@ -103,8 +141,10 @@ public class PaqueteController {
             - CANCELADO
             - DEVUELTO
             
+            **Campos de orden (`sort`):** id, codigoPaquete, fechaRegistro, destino
+            
             **Respuestas:**
-            - 200: Lista de paquetes encontrados
+            - 200: Página de paquetes encontrados
             - 204: No se encontraron paquetes
             - 400: Parámetros inválidos
             - 401: No autenticado
@@ -119,54 +159,75 @@ public class PaqueteController {
         @RequestParam(required = false) 
         @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaRegistro,
         
+        @Parameter(description = "Fecha de registro inicial (inclusive)", example = "2025-11-01")
+        @RequestParam(required = false)
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+        
+        @Parameter(description = "Fecha de registro final (inclusive)", example = "2025-11-30")
+        @RequestParam(required = false)
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+        
+        @Parameter(description = "Destino exacto del paquete", example = "Medellín")
+        @RequestParam(required = false) String destino,
+        
+        @Parameter(description = "ID del cliente remitente", example = "15")
+        @RequestParam(required = false) Integer idClienteRemitente,
+        
+        @Parameter(description = "ID del cliente destinatario", example = "27")
+        @RequestParam(required = false) Integer idClienteDestinatario,
+        
+        @Parameter(description = "ID del empleado responsable", example = "3")
+        @RequestParam(required = false) Integer idEmpleadoResponsable,
+        
         @Parameter(description = "Estado del paquete", example = "EN_TRANSITO")
-        @RequestParam(required = false) String nombreEstado
+        @RequestParam(required = false) String nombreEstado,
+        
+        @ParameterObject
+        @PageableDefault(size = CursorPaginacion.LIMITE_POR_DEFECTO) Pageable pageable
     ) {
         try {
+            PaqueteCriteriosBusqueda criterios = new PaqueteCriteriosBusqueda(
+                codigoPaquete, fechaRegistro, fechaDesde, fechaHasta, destino,
+                idClienteRemitente, idClienteDestinatario, idEmpleadoResponsable, nombreEstado
+            );
+            
             // Validar que se proporcione al menos un criterio
-            if (codigoPaquete == null && fechaRegistro == null && nombreEstado == null) {
+            if (criterios.estaVacio()) {
                 Map<String, Object> error = new HashMap<>();
                 error.put("error", "Debe proporcionar al menos un criterio de búsqueda");
-                error.put("parametrosDisponibles", List.of("codigoPaquete", "fechaRegistro", "nombreEstado"));
+                error.put("parametrosDisponibles", List.of("codigoPaquete", "fechaRegistro", "fechaDesde",
+                    "fechaHasta", "destino", "idClienteRemitente", "idClienteDestinatario",
+                    "idEmpleadoResponsable", "nombreEstado"));
                 error.put("ejemplo", "/api/paquetes/buscar?fechaRegistro=2025-11-17");
                 return ResponseEntity.badRequest().body(error);
             }
+            if (fechaDesde != null && fechaHasta != null && fechaDesde.isAfter(fechaHasta)) {
+                Map<String, Object> error = new HashMap<>();
+                error.put("error", "fechaDesde no puede ser posterior a fechaHasta");
+                return ResponseEntity.badRequest().body(error);
+            }
             
-            List<Paquete> paquetes = paqueteService.buscarPorCriterios(
-                codigoPaquete, 
-                fechaRegistro, 
-                nombreEstado
-            );
+            Page<PaqueteResponseDto> pagina = paqueteService.buscarPorCriterios(criterios, pageable);
             
-            if (paquetes.isEmpty()) {
+            if (pagina.isEmpty()) {
                 Map<String, Object> response = new HashMap<>();
                 response.put("mensaje", "No se encontraron paquetes con los criterios especificados");
-                response.put("criteriosBusqueda", Map.of(
-                    "codigoPaquete", codigoPaquete != null ? codigoPaquete : "No especificado",
-                    "fechaRegistro", fechaRegistro != null ? fechaRegistro.toString() : "No especificado",
-                    "nombreEstado", nombreEstado != null ? nombreEstado : "No especificado"
-                ));
+                response.put("criteriosBusqueda", criterios);
                 return ResponseEntity.status(HttpStatus.NO_CONTENT).body(response);
             }
             
-            // Convertir entidades a DTOs
-            List<PaqueteResponseDto> paquetesDto = paquetes.stream()
-                .map(p -> PaqueteResponseDto.builder()
-                    .id(p.getId())
-                    .codigoPaquete(p.getCodigoPaquete())
-                    .remitente(p.getRemitente())
-                    .destinatario(p.getDestinatario())
-                    .destino(p.getDestino())
-                    .estadoActual(p.getIdEstadoActual() != null ? p.getIdEstadoActual().getNombreEstado() : null)
-                    .build())
-                .collect(Collectors.toList());
-            
             Map<String, Object> response = new HashMap<>();
             response.put("mensaje", "Paquetes encontrados");
-            response.put("cantidad", paquetesDto.size());
-            response.put("paquetes", paquetesDto);
+            response.put("cantidad", pagina.getNumberOfElements());
+            response.put("paquetes", pagina.getContent());
+            response.put("pagina", pagina.getNumber());
+            response.put("tamanoPagina", pagina.getSize());
+            response.put("totalElementos", pagina.getTotalElements());
+            response.put("totalPaginas", pagina.getTotalPages());
             return ResponseEntity.ok(response);
             
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error al buscar paquetes");
@@ -175,52 +236,83 @@ public class PaqueteController {
         }
     }
 
+    @Operation(
+        summary = "Buscar paquetes por texto parcial",
+        description = """
+            Busca el texto (sin distinguir mayúsculas) dentro del código, el remitente o el destinatario.
+            Primero aparecen las coincidencias exactas de código, luego las que empiezan por el texto
+            y después las más parecidas. Paginado con `page` (desde 0) y `size` (por defecto 20, máximo 500).
+            
+            **Ejemplos de uso:**
+            - Código parcial: `/api/paquetes/buscar/texto?q=2025-0012`
+            - Nombre parcial: `/api/paquetes/buscar/texto?q=garc`
+            
+            **Respuestas:**
+            - 200: Página de resultados (vacía si no hay coincidencias)
+            - 400: Texto de menos de 3 caracteres
+            """
+    )
+    @GetMapping("/buscar/texto")
+    public ResponseEntity<?> buscarPorTexto(
+        @Parameter(description = "Texto a buscar (mínimo 3 caracteres)", example = "garc")
+        @RequestParam String q,
+        
+        @ParameterObject
+        @PageableDefault(size = 20) Pageable pageable
+    ) {
+        Slice<PaqueteResponseDto> pagina = paqueteService.buscarPorTexto(q, pageable);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("mensaje", pagina.hasContent()
+            ? "Paquetes encontrados" : "No se encontraron paquetes para: " + q);
+        response.put("cantidad", pagina.getNumberOfElements());
+        response.put("paquetes", pagina.getContent());
+        response.put("pagina", pagina.getNumber());
+        response.put("tamanoPagina", pagina.getSize());
+        response.put("hayMas", pagina.hasNext());
+        return ResponseEntity.ok(response);
+    }
+
     @Operation(
         summary = "Obtener paquetes en tránsito",
         description = """
-            Retorna todos los paquetes que están actualmente en estado EN_TRANSITO.
+            Retorna los paquetes que están actualmente en estado EN_TRANSITO, paginados por cursor.
             Este endpoint es útil para ver qué paquetes están activos y en movimiento.
+            Para pedir la siguiente página envíe en `cursor` el valor `next` de la respuesta anterior.
             
             **Estados considerados "en tránsito":**
-            - EN_TRANSITO
+            - Todo estado de categoría EN_TRANSITO (nombres como "En tránsito", "EN_TRANSITO" o "En ruta")
             
             **Respuestas:**
-            - 200: Lista de paquetes en tránsito
-            - 204: No hay paquetes en tránsito actualmente
-            - 401: No autenticado
+            - 200: Página de paquetes en tránsito (vacía si no hay ninguno)
+            - 400: Cursor o límite inválido
             """
     )
     @GetMapping("/en-transito")
-    public ResponseEntity<?> obtenerPaquetesEnTransito() {
+    public ResponseEntity<?> obtenerPaquetesEnTransito(
+        @Parameter(description = "Cursor opaco devuelto en `next` por la página anterior")
+        @RequestParam(required = false) String cursor,
+        @Parameter(description = "Cantidad máxima de paquetes por página (por defecto 50, máximo 500)", example = "50")
+        @RequestParam(required = false) Integer limit
+    ) {
         try {
-            List<Paquete> paquetes = paqueteService.findPaquetesEnTransito();
+            PaginaCursor<PaqueteResponseDto> pagina = paqueteService.findPaquetesEnTransito(cursor, limit);
+            List<PaqueteResponseDto> paquetesDto = pagina.items();
             
-            if (paquetes.isEmpty()) {
-                Map<String, Object> response = new HashMap<>();
+            Map<String, Object> response = new HashMap<>();
+            if (paquetesDto.isEmpty()) {
                 response.put("mensaje", "No hay paquetes en tránsito en este momento");
-                response.put("cantidad", 0);
-                response.put("paquetes", List.of());
-                return ResponseEntity.ok(response);
+            } else {
+                response.put("mensaje", "Paquetes en tránsito encontrados");
             }
-            
-            // Convertir entidades a DTOs
-            List<PaqueteResponseDto> paquetesDto = paquetes.stream()
-                .map(p -> PaqueteResponseDto.builder()
-                    .id(p.getId())
-                    .codigoPaquete(p.getCodigoPaquete())
-                    .remitente(p.getRemitente())
-                    .destinatario(p.getDestinatario())
-                    .destino(p.getDestino())
-                    .estadoActual(p.getIdEstadoActual() != null ? p.getIdEstadoActual().getNombreEstado() : null)
-                    .build())
-                .collect(Collectors.toList());
-            
-            Map<String, Object> response = new HashMap<>();
-            response.put("mensaje", "Paquetes en tránsito encontrados");
             response.put("cantidad", paquetesDto.size());
             response.put("paquetes", paquetesDto);
+            response.put("next", pagina.next());
+            response.put("limit", pagina.limit());
             return ResponseEntity.ok(response);
             
+        } catch (ResponseStatusException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error al obtener paquetes en tránsito");
@@ -229,8 +321,43 @@ public class PaqueteController {
         }
     }
 
+    @Operation(
+        summary = "Exportar paquetes en formato NDJSON",
+        description = """
+            Descarga los paquetes como JSON delimitado por saltos de línea (un `PaqueteResponseDto` por línea).
+            La respuesta se transmite a medida que se lee la base de datos, por lo que sirve para
+            exportaciones completas sin cargar todos los paquetes en memoria.
+            
+            **Filtros opcionales:**
+            - fechaDesde / fechaHasta: rango de fecha de registro (YYYY-MM-DD, ambos inclusive)
+            - nombreEstado: estado actual del paquete
+            
+            **Ejemplo:** `/api/paquetes/exportar?fechaDesde=2025-11-01&fechaHasta=2025-11-30&nombreEstado=ENTREGADO`
+            """
+    )
+    @GetMapping(value = "/exportar", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarPaquetes(
+        @Parameter(description = "Fecha de registro inicial (inclusive)", example = "2025-11-01")
+        @RequestParam(required = false)
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaDesde,
+        
+        @Parameter(description = "Fecha de registro final (inclusive)", example = "2025-11-30")
+        @RequestParam(required = false)
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaHasta,
+        
+        @Parameter(description = "Estado actual del paquete", example = "ENTREGADO")
+        @RequestParam(required = false) String nombreEstado
+    ) {
+        StreamingResponseBody cuerpo = salida ->
+                paqueteService.exportarNdjson(fechaDesde, fechaHasta, nombreEstado, salida);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(cuerpo);
+    }
+
     @Operation(summary = "Actualizar dirección de destino de un paquete",
-            description = "Permite modificar la dirección de destino de un paquete existente")
+            description = "Permite modificar la dirección de destino de un paquete existente. " +
+                          "Responde 409 con la versión actual si el paquete cambia a la vez en otra operación")
     @PutMapping("/{codigo}/direccion")
     public ResponseEntity<PaqueteResponseDto> actualizarDireccionDestino(
             @PathVariable String codigo,
@@ -239,7 +366,9 @@ public class PaqueteController {
     }
 
     @Operation(summary = "Actualizar estado de un paquete",
-            description = "Cambia el estado actual del paquete y registra el cambio en el historial")
+            description = "Cambia el estado actual del paquete y registra el cambio en el historial. " +
+                          "Los cambios simultáneos sobre el mismo paquete se reintentan; si no se puede " +
+                          "completar responde 409 con la versión actual")
     @PutMapping("/{codigo}/estado")
     public ResponseEntity<?> actualizarEstado(
             @PathVariable String codigo,
@@ -254,6 +383,8 @@ public class PaqueteController {
             Map<String, String> error = new HashMap<>();
             error.put("error", e.getMessage());
             return ResponseEntity.badRequest().body(error);
+        } catch (ConflictoVersionException e) {
+            throw e;
         } catch (Exception e) {
             Map<String, String> error = new HashMap<>();
             error.put("error", "Error al actualizar el estado: " + e.getMessage());
@@ -261,6 +392,52 @@ public class PaqueteController {
         }
     }
 
+    /**
+     * Otra operación modificó el paquete durante todos los reintentos de una actualización
+     */
+    @ExceptionHandler(ConflictoVersionException.class)
+    public ResponseEntity<Map<String, Object>> manejarConflictoVersion(ConflictoVersionException e) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("error", "El paquete fue modificado por otra operación");
+        error.put("codigo", e.getCodigoPaquete());
+        error.put("versionActual", e.getVersionActual());
+        error.put("sugerencia", "Consulte el paquete nuevamente y repita la operación si sigue siendo necesaria");
+        return ResponseEntity.status(HttpStatus.CONFLICT).headers(e.getHeaders()).body(error);
+    }
+
+    @Operation(
+        summary = "Actualizar el estado de varios paquetes",
+        description = """
+            Aplica el mismo estado a una lista de paquetes (hasta 5000) en una sola operación,
+            por ejemplo al cierre de turno en bodega. Registra un historial por paquete.
+            
+            **Ejemplo de payload (JSON):**
+            ```json
+            {
+              "codigos": ["PKG-2025-000101", "PKG-2025-000102"],
+              "nuevoEstado": "EN_BODEGA"
+            }
+            ```
+            
+            **Resultado por código:** ACTUALIZADO, NO_ENCONTRADO o DUPLICADO (repetido en el lote)
+            
+            **Respuestas:**
+            - 200: Lote procesado (revise el resultado de cada código)
+            - 400: Estado inexistente o datos inválidos
+            - 401: No autenticado
+            """
+    )
+    @PutMapping("/estado/lote")
+    public ResponseEntity<?> actualizarEstadoLote(@Valid @RequestBody CambioEstadoLoteRequest request) {
+        try {
+            return ResponseEntity.ok(paqueteService.actualizarEstadoLote(request.codigos(), request.nuevoEstado()));
+        } catch (IllegalArgumentException e) {
+            Map<String, String> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
     @Operation(summary = "Ping",
             description = "Endpoint de prueba para verificar que el servicio está activo")
     @GetMapping("/ping")
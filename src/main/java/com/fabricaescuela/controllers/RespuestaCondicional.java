@@ -0,0 +1,41 @@
+package com.fabricaescuela.controllers;
+
+import java.util.function.Supplier;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.WebRequest;
+
+import com.fabricaescuela.models.dto.VersionPaquete;
+
+/**
+ * Respuestas condicionales de las consultas de seguimiento, validadas con la
+ * versión del paquete (ETag y Last-Modified).
+ * <p>
+ * Solo se usa cuando ya se sabe que la respuesta es 200: un 404 no lleva
+ * validadores, así que nunca se responde 304 por un recurso que no existe.
+ */
+final class RespuestaCondicional {
+
+    /**
+     * El navegador o un proxy pueden guardar la respuesta, pero deben revalidarla
+     * cada vez con If-None-Match; reemplaza el no-store que agrega Spring Security.
+     */
+    static final CacheControl CACHE_SEGUIMIENTO = CacheControl.noCache().cachePrivate();
+
+    private RespuestaCondicional() {
+    }
+
+    /**
+     * 304 sin cuerpo si el cliente ya tiene esta versión; si no, 200 con el cuerpo.
+     * Ambas llevan ETag, Last-Modified y {@link #CACHE_SEGUIMIENTO}.
+     */
+    static <T> ResponseEntity<T> responder(VersionPaquete version, WebRequest webRequest, Supplier<T> cuerpo) {
+        // checkNotModified deja ETag y Last-Modified en la respuesta en ambos casos
+        if (webRequest.checkNotModified(version.etag(), version.ultimaModificacion().toEpochMilli())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(CACHE_SEGUIMIENTO).build();
+        }
+        return ResponseEntity.ok().cacheControl(CACHE_SEGUIMIENTO).body(cuerpo.get());
+    }
+}
@@ -0,0 +1,449 @@
+package com.fabricaescuela.mantenimiento;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.sql.DataSource;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.fabricaescuela.models.entity.CategoriaEstado;
+
+/**
+ * Comando de una sola ejecución que genera un conjunto de datos sintético de
+ * tamaño de producción en las cinco tablas, para reproducir problemas con volúmenes reales:
+ *
+ * <pre>
+ * java -jar fe.jar --spring.main.web-application-type=none \
+ *      --inventario.mantenimiento.generar-datos=true \
+ *      --inventario.generador.paquetes=10000000 --inventario.generador.hilos=8
+ * </pre>
+ *
+ * Los paquetes se reparten en lotes; cada hilo toma un lote y escribe sus filas de
+ * {@code paquetes}, {@code historial_estados}, {@code historial_ubicaciones} y
+ * {@code novedades} con COPY en una sola transacción, con IDs explícitos reservados
+ * por lote (sin ida y vuelta por fila). Los datos siguen la secuencia real de estados
+ * (REGISTRADO → EN_TRANSITO → EN_BODEGA → EN_REPARTO → ENTREGADO) según la antigüedad
+ * del paquete, con destinos y remitentes sesgados (Zipf) y unos pocos paquetes con
+ * cientos de ubicaciones. Cada lote usa su propia semilla, así que el contenido se
+ * repite entre corridas (los IDs de las tablas hijas dependen del orden de los hilos).
+ * <p>
+ * Agrega datos a los existentes; al terminar ajusta las secuencias, ejecuta ANALYZE
+ * y cierra la aplicación.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.mantenimiento.generar-datos", havingValue = "true")
+public class GeneradorDatosSinteticosRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeneradorDatosSinteticosRunner.class);
+
+    private static final int PAQUETES_POR_LOTE = 20_000;
+    private static final int BUFFER_COPY = 256 * 1024;
+    private static final int DIAS_DE_HISTORIA = 365;
+    private static final double PROPORCION_CON_NOVEDAD = 0.03;
+
+    /** Orden real de los estados; un paquete recorre un prefijo de esta secuencia. */
+    private static final CategoriaEstado[] SECUENCIA = {
+            CategoriaEstado.REGISTRADO, CategoriaEstado.EN_TRANSITO, CategoriaEstado.EN_BODEGA,
+            CategoriaEstado.EN_REPARTO, CategoriaEstado.ENTREGADO};
+    private static final String[] NOMBRES_SECUENCIA = {"REGISTRADO", "EN_TRANSITO", "EN_BODEGA", "EN_REPARTO", "ENTREGADO"};
+
+    // Ciudad, latitud, longitud. El orden es el de popularidad: Zipf favorece las primeras
+    private static final String[] CIUDADES = {
+            "Bogotá", "Medellín", "Cali", "Barranquilla", "Cartagena", "Bucaramanga", "Pereira", "Cúcuta",
+            "Ibagué", "Santa Marta", "Manizales", "Villavicencio", "Pasto", "Montería", "Neiva", "Armenia",
+            "Popayán", "Sincelejo", "Valledupar", "Tunja", "Riohacha", "Quibdó", "Florencia", "Yopal",
+            "Leticia", "San Andrés", "Mocoa", "Arauca", "Inírida", "Mitú"};
+    private static final double[][] COORDENADAS = {
+            {4.711, -74.072}, {6.244, -75.581}, {3.452, -76.532}, {10.968, -74.781}, {10.391, -75.479},
+            {7.119, -73.122}, {4.813, -75.696}, {7.893, -72.507}, {4.438, -75.232}, {11.240, -74.199},
+            {5.070, -75.513}, {4.142, -73.626}, {1.213, -77.281}, {8.748, -75.881}, {2.927, -75.281},
+            {4.533, -75.681}, {2.444, -76.614}, {9.304, -75.397}, {10.463, -73.253}, {5.535, -73.367},
+            {11.544, -72.907}, {5.694, -76.658}, {1.614, -75.606}, {5.337, -72.395}, {-4.215, -69.940},
+            {12.584, -81.700}, {1.152, -76.646}, {7.090, -70.761}, {3.865, -67.923}, {1.253, -70.234}};
+    private static final String[] TIPOS_NOVEDAD = {
+            "RETRASO", "DIRECCION_INCORRECTA", "DESTINATARIO_AUSENTE", "DANO", "EXTRAVIO", "REPROGRAMADO"};
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfigurableApplicationContext context;
+    private final int paquetes;
+    private final int hilos;
+    private final double ubicacionesPorPaquete;
+    private final double proporcionPesados;
+    private final int ubicacionesPorPesado;
+    private final long semilla;
+
+    private final Zipf destinos = new Zipf(CIUDADES.length, 1.2);
+    private final Zipf remitentes = new Zipf(100_000, 1.1);
+    private final Zipf tiposNovedad = new Zipf(TIPOS_NOVEDAD.length, 1.0);
+
+    private final AtomicLong siguienteHistorialEstado = new AtomicLong();
+    private final AtomicLong siguienteUbicacion = new AtomicLong();
+    private final AtomicLong siguienteNovedad = new AtomicLong();
+    private final AtomicLong filasEscritas = new AtomicLong();
+    private final AtomicInteger lotesTerminados = new AtomicInteger();
+
+    public GeneradorDatosSinteticosRunner(DataSource dataSource,
+                                          ConfigurableApplicationContext context,
+                                          @Value("${inventario.generador.paquetes:1000000}") int paquetes,
+                                          @Value("${inventario.generador.hilos:4}") int hilos,
+                                          @Value("${inventario.generador.ubicaciones-por-paquete:5}") double ubicacionesPorPaquete,
+                                          @Value("${inventario.generador.proporcion-pesados:0.0005}") double proporcionPesados,
+                                          @Value("${inventario.generador.ubicaciones-por-pesado:500}") int ubicacionesPorPesado,
+                                          @Value("${inventario.generador.semilla:42}") long semilla) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.context = context;
+        this.paquetes = paquetes;
+        this.hilos = Math.max(1, hilos);
+        this.ubicacionesPorPaquete = ubicacionesPorPaquete;
+        this.proporcionPesados = proporcionPesados;
+        this.ubicacionesPorPesado = ubicacionesPorPesado;
+        this.semilla = semilla;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        logger.info("🔧 Generando {} paquetes sintéticos con {} hilos...", paquetes, hilos);
+        long inicio = System.nanoTime();
+
+        int[] idsEstado = asegurarEstados();
+        int primerPaquete = siguienteId("paquetes", "id_paquete");
+        siguienteHistorialEstado.set(siguienteId("historial_estados", "id_historia_estadol"));
+        siguienteUbicacion.set(siguienteId("historial_ubicaciones", "id_historial_ubicacion"));
+        siguienteNovedad.set(siguienteId("novedades", "id_novedad"));
+
+        int lotes = (paquetes + PAQUETES_POR_LOTE - 1) / PAQUETES_POR_LOTE;
+        try (ExecutorService trabajadores = Executors.newFixedThreadPool(hilos)) {
+            List<Future<?>> tareas = new ArrayList<>(lotes);
+            for (int lote = 0; lote < lotes; lote++) {
+                int desde = lote * PAQUETES_POR_LOTE;
+                int cantidad = Math.min(PAQUETES_POR_LOTE, paquetes - desde);
+                int numeroLote = lote;
+                tareas.add(trabajadores.submit(() -> {
+                    escribirLote(numeroLote, primerPaquete + desde, cantidad, idsEstado);
+                    informarProgreso(lotes, inicio);
+                    return null;
+                }));
+            }
+            for (Future<?> tarea : tareas) {
+                tarea.get();
+            }
+        }
+
+        ajustarSecuencias();
+        logger.info("✅ Datos sintéticos generados: {} filas en {} s",
+                filasEscritas.get(), (System.nanoTime() - inicio) / 1_000_000_000);
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+
+    // IDs de los estados de SECUENCIA; crea los que falten con su nombre canónico
+    private int[] asegurarEstados() {
+        Map<CategoriaEstado, Integer> porCategoria = new EnumMap<>(CategoriaEstado.class);
+        jdbcTemplate.query("SELECT id_estado, nombre_estado FROM estados ORDER BY id_estado", fila -> {
+            porCategoria.putIfAbsent(CategoriaEstado.clasificar(fila.getString(2)), fila.getInt(1));
+        });
+
+        int[] ids = new int[SECUENCIA.length];
+        for (int i = 0; i < SECUENCIA.length; i++) {
+            Integer id = porCategoria.get(SECUENCIA[i]);
+            if (id == null) {
+                id = jdbcTemplate.queryForObject("INSERT INTO estados (nombre_estado) VALUES (?) RETURNING id_estado",
+                        Integer.class, NOMBRES_SECUENCIA[i]);
+                logger.info("Estado {} creado con ID {}", NOMBRES_SECUENCIA[i], id);
+            }
+            ids[i] = id;
+        }
+        return ids;
+    }
+
+    private int siguienteId(String tabla, String columna) {
+        Integer maximo = jdbcTemplate.queryForObject("SELECT coalesce(max(" + columna + "), 0) FROM " + tabla, Integer.class);
+        return maximo + 1;
+    }
+
+    /**
+     * Plan de un paquete: cuántas etapas de la secuencia recorrió y cuántas
+     * ubicaciones y novedades tiene. Se calcula antes de escribir para reservar
+     * los IDs de todo el lote de una vez.
+     */
+    private record Plan(int etapas, int ubicaciones, boolean conNovedad, int destino, int remitente,
+                        LocalDate fechaRegistro) {
+    }
+
+    private void escribirLote(int lote, int primerId, int cantidad, int[] idsEstado) {
+        SplittableRandom aleatorio = new SplittableRandom(semilla * 1_000_003L + lote);
+        LocalDate hoy = LocalDate.of(2025, 12, 31);
+
+        Plan[] planes = new Plan[cantidad];
+        long historiales = 0;
+        long ubicaciones = 0;
+        long novedades = 0;
+        for (int i = 0; i < cantidad; i++) {
+            Plan plan = planificar(aleatorio, hoy);
+            planes[i] = plan;
+            historiales += plan.etapas();
+            ubicaciones += plan.ubicaciones();
+            novedades += plan.conNovedad() ? 1 : 0;
+        }
+        long historialId = siguienteHistorialEstado.getAndAdd(historiales);
+        long ubicacionId = siguienteUbicacion.getAndAdd(ubicaciones);
+        long novedadId = siguienteNovedad.getAndAdd(novedades);
+
+        try (Connection conexion = dataSource.getConnection()) {
+            conexion.setAutoCommit(false);
+            PGConnection pg = conexion.unwrap(PGConnection.class);
+
+            try (Filas filas = new Filas(pg, "COPY paquetes (id_paquete, codigo_paquete, remitente, destinatario, "
+                    + "fecha_registro, destino, id_estado_actual, id_cliente_remitente, id_cliente_destinatario, "
+                    + "id_empleado_responsable) FROM STDIN")) {
+                for (int i = 0; i < cantidad; i++) {
+                    Plan plan = planes[i];
+                    int id = primerId + i;
+                    filas.campo(id)
+                         .campo(String.format("PKG-%d-%09d", plan.fechaRegistro().getYear(), id))
+                         .campo("Cliente " + plan.remitente())
+                         .campo("Destinatario " + aleatorio.nextInt(1_000_000))
+                         .campo(plan.fechaRegistro())
+                         .campo(CIUDADES[plan.destino()])
+                         .campo(idsEstado[plan.etapas() - 1])
+                         .campo(plan.remitente())
+                         .campo(1 + aleatorio.nextInt(1_000_000))
+                         .ultimo(1 + aleatorio.nextInt(500));
+                }
+            }
+
+            try (Filas filas = new Filas(pg, "COPY historial_estados (id_historia_estadol, id_paquete, id_estado, "
+                    + "fecha_hora, id_empleado) FROM STDIN")) {
+                for (int i = 0; i < cantidad; i++) {
+                    Plan plan = planes[i];
+                    for (int etapa = 0; etapa < plan.etapas(); etapa++) {
+                        filas.campo(historialId++)
+                             .campo(primerId + i)
+                             .campo(idsEstado[etapa])
+                             .campo(fechaEtapa(plan, etapa, hoy))
+                             .ultimo(1 + aleatorio.nextInt(500));
+                    }
+                }
+            }
+
+            try (Filas filas = new Filas(pg, "COPY historial_ubicaciones (id_historial_ubicacion, id_paquete, "
+                    + "ubicacion, fecha_hora) FROM STDIN")) {
+                StringBuilder ubicacion = new StringBuilder(24);
+                for (int i = 0; i < cantidad; i++) {
+                    Plan plan = planes[i];
+                    // Del origen (Bogotá) hacia el destino, entre la salida y la entrega
+                    double[] origen = COORDENADAS[0];
+                    double[] destino = COORDENADAS[plan.destino()];
+                    Instant salida = fechaEtapa(plan, 1, hoy).atStartOfDay().toInstant(ZoneOffset.UTC);
+                    long segundosEnRuta = Math.max(3600, Duration.between(salida,
+                            fechaEtapa(plan, Math.min(plan.etapas(), SECUENCIA.length - 1), hoy)
+                                    .atStartOfDay().toInstant(ZoneOffset.UTC)).toSeconds());
+                    for (int n = 0; n < plan.ubicaciones(); n++) {
+                        double avance = (n + 1.0) / plan.ubicaciones();
+                        double lat = origen[0] + (destino[0] - origen[0]) * avance + (aleatorio.nextDouble() - 0.5) * 0.02;
+                        double lon = origen[1] + (destino[1] - origen[1]) * avance + (aleatorio.nextDouble() - 0.5) * 0.02;
+                        ubicacion.setLength(0);
+                        ubicacion.append(Math.round(lat * 100_000) / 100_000.0).append(',')
+                                 .append(Math.round(lon * 100_000) / 100_000.0);
+                        filas.campo(ubicacionId++)
+                             .campo(primerId + i)
+                             .campo(ubicacion)
+                             .ultimo(salida.plusSeconds((long) (segundosEnRuta * avance)));
+                    }
+                }
+            }
+
+            try (Filas filas = new Filas(pg, "COPY novedades (id_novedad, id_paquete, tipo_novedad, descripcion, "
+                    + "fecha_hora, id_empleado) FROM STDIN")) {
+                for (int i = 0; i < cantidad; i++) {
+                    Plan plan = planes[i];
+                    if (!plan.conNovedad()) {
+                        continue;
+                    }
+                    String tipo = TIPOS_NOVEDAD[tiposNovedad.muestra(aleatorio)];
+                    filas.campo(novedadId++)
+                         .campo(primerId + i)
+                         .campo(tipo)
+                         .campo("Novedad " + tipo.toLowerCase().replace('_', ' ') + " en " + CIUDADES[plan.destino()])
+                         .campo(fechaEtapa(plan, plan.etapas() - 1, hoy))
+                         .ultimo(1 + aleatorio.nextInt(500));
+                }
+            }
+
+            conexion.commit();
+            filasEscritas.addAndGet(cantidad + historiales + ubicaciones + novedades);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error al escribir el lote " + lote + ": " + e.getMessage(), e);
+        }
+    }
+
+    private Plan planificar(SplittableRandom aleatorio, LocalDate hoy) {
+        int antiguedad = aleatorio.nextInt(DIAS_DE_HISTORIA);
+        LocalDate fechaRegistro = hoy.minusDays(antiguedad);
+
+        // Cada etapa toma ~1-2 días: los paquetes viejos están entregados, salvo unos pocos atascados
+        int etapas = Math.min(SECUENCIA.length, 1 + antiguedad / 2 + (aleatorio.nextInt(3) == 0 ? 1 : 0));
+        if (etapas == SECUENCIA.length && aleatorio.nextInt(100) < 2) {
+            etapas = 2 + aleatorio.nextInt(SECUENCIA.length - 2);
+        }
+
+        int ubicaciones = 0;
+        if (etapas >= 2) {
+            ubicaciones = aleatorio.nextDouble() < proporcionPesados
+                    ? ubicacionesPorPesado
+                    : geometrica(aleatorio, ubicacionesPorPaquete);
+        }
+        return new Plan(etapas, ubicaciones, aleatorio.nextDouble() < PROPORCION_CON_NOVEDAD,
+                destinos.muestra(aleatorio), 1 + remitentes.muestra(aleatorio), fechaRegistro);
+    }
+
+    private static LocalDate fechaEtapa(Plan plan, int etapa, LocalDate hoy) {
+        LocalDate fecha = plan.fechaRegistro().plusDays(2L * etapa);
+        return fecha.isAfter(hoy) ? hoy : fecha;
+    }
+
+    // Cantidad con media dada y cola larga (distribución geométrica desde 1)
+    private static int geometrica(SplittableRandom aleatorio, double media) {
+        if (media <= 1) {
+            return 1;
+        }
+        double p = 1.0 / media;
+        return 1 + (int) (Math.log(1 - aleatorio.nextDouble()) / Math.log(1 - p));
+    }
+
+    private void informarProgreso(int lotes, long inicio) {
+        int terminados = lotesTerminados.incrementAndGet();
+        if (terminados % 25 == 0 || terminados == lotes) {
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            logger.info("Lote {}/{}: {} filas ({} filas/s)", terminados, lotes, filasEscritas.get(),
+                    (long) (filasEscritas.get() / segundos));
+        }
+    }
+
+    private void ajustarSecuencias() {
+        logger.info("Ajustando secuencias y actualizando estadísticas...");
+        for (String[] tabla : new String[][] {
+                {"paquetes", "id_paquete"},
+                {"historial_ubicaciones", "id_historial_ubicacion"},
+                {"novedades", "id_novedad"}}) {
+            jdbcTemplate.execute("SELECT setval(pg_get_serial_sequence('" + tabla[0] + "', '" + tabla[1] + "'), "
+                    + "(SELECT max(" + tabla[1] + ") FROM " + tabla[0] + "))");
+        }
+        // Mismo margen que V7 para la secuencia agrupada de Hibernate (allocationSize 50)
+        jdbcTemplate.execute("SELECT setval('historial_estados_seq', "
+                + "(SELECT max(id_historia_estadol) FROM historial_estados) + 51, false)");
+        for (String tabla : new String[] {"estados", "paquetes", "historial_estados", "historial_ubicaciones", "novedades"}) {
+            jdbcTemplate.execute("ANALYZE " + tabla);
+        }
+    }
+
+    /**
+     * Filas en formato de texto de COPY (tabuladores y saltos de línea) escritas
+     * directamente al protocolo, sin armar el lote completo en memoria. Los valores
+     * generados no contienen tabuladores, saltos de línea ni barras invertidas.
+     */
+    private static final class Filas implements AutoCloseable {
+
+        private final Writer salida;
+
+        Filas(PGConnection conexion, String copy) throws SQLException {
+            this.salida = new BufferedWriter(new OutputStreamWriter(
+                    new PGCopyOutputStream(conexion, copy, BUFFER_COPY), StandardCharsets.UTF_8), BUFFER_COPY);
+        }
+
+        Filas campo(Object valor) {
+            return escribir(valor, '\t');
+        }
+
+        void ultimo(Object valor) {
+            escribir(valor, '\n');
+        }
+
+        private Filas escribir(Object valor, char separador) {
+            try {
+                salida.append(String.valueOf(valor)).append(separador);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return this;
+        }
+
+        @Override
+        public void close() {
+            try {
+                salida.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Muestreo Zipf sobre {@code 0..n-1} (el 0 es el más frecuente) por búsqueda
+     * binaria en la distribución acumulada.
+     */
+    private static final class Zipf {
+
+        private final double[] acumulada;
+
+        Zipf(int n, double exponente) {
+            acumulada = new double[n];
+            double suma = 0;
+            for (int i = 0; i < n; i++) {
+                suma += 1.0 / Math.pow(i + 1, exponente);
+                acumulada[i] = suma;
+            }
+            for (int i = 0; i < n; i++) {
+                acumulada[i] /= suma;
+            }
+        }
+
+        int muestra(SplittableRandom aleatorio) {
+            double u = aleatorio.nextDouble();
+            int bajo = 0;
+            int alto = acumulada.length - 1;
+            while (bajo < alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (acumulada[medio] < u) {
+                    bajo = medio + 1;
+                } else {
+                    alto = medio;
+                }
+            }
+            return bajo;
+        }
+    }
+}
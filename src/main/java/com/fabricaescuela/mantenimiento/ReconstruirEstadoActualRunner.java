@@ -0,0 +1,49 @@
+package com.fabricaescuela.mantenimiento;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import com.fabricaescuela.service.PaqueteService;
+
+/**
+ * Comando de una sola ejecución que recalcula {@code paquetes.idEstadoActual}
+ * desde {@code historial_estados}. Pensado para después de cargas masivas que
+ * escriben el historial directamente en la base de datos:
+ *
+ * <pre>
+ * java -jar fe.jar --spring.main.web-application-type=none \
+ *      --inventario.mantenimiento.reconstruir-estado-actual=true
+ * </pre>
+ *
+ * Al terminar cierra la aplicación. Los paquetes sin historial conservan su valor.
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.mantenimiento.reconstruir-estado-actual", havingValue = "true")
+public class ReconstruirEstadoActualRunner implements ApplicationRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReconstruirEstadoActualRunner.class);
+
+    private final PaqueteService paqueteService;
+    private final ConfigurableApplicationContext context;
+
+    public ReconstruirEstadoActualRunner(PaqueteService paqueteService, ConfigurableApplicationContext context) {
+        this.paqueteService = paqueteService;
+        this.context = context;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        logger.info("🔧 Reconstruyendo el estado actual de los paquetes desde el historial...");
+        long inicio = System.currentTimeMillis();
+        int actualizados = paqueteService.reconstruirEstadoActual();
+        logger.info("✅ Estado actual reconstruido: {} paquetes corregidos en {} ms",
+                actualizados, System.currentTimeMillis() - inicio);
+        System.exit(SpringApplication.exit(context, () -> 0));
+    }
+}
@@ -0,0 +1,31 @@
+package com.fabricaescuela.models.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+@Schema(description = "Request para cambiar el estado de varios paquetes a la vez")
+public record CambioEstadoLoteRequest(
+        @Schema(
+            description = "Códigos de los paquetes a actualizar",
+            example = "[\"PKG-2025-000101\", \"PKG-2025-000102\"]",
+            requiredMode = Schema.RequiredMode.REQUIRED
+        )
+        @NotEmpty(message = "Debe enviar al menos un código de paquete")
+        @Size(max = CambioEstadoLoteRequest.MAXIMO_CODIGOS,
+              message = "No se pueden actualizar más de " + CambioEstadoLoteRequest.MAXIMO_CODIGOS + " paquetes por lote")
+        List<@NotBlank(message = "Los códigos de paquete no pueden estar vacíos") String> codigos,
+
+        @Schema(
+            description = "Nombre del nuevo estado",
+            example = "EN_BODEGA",
+            requiredMode = Schema.RequiredMode.REQUIRED
+        )
+        @NotBlank(message = "El nuevo estado es obligatorio")
+        String nuevoEstado
+) {
+    public static final int MAXIMO_CODIGOS = 5000;
+}
@@ -0,0 +1,37 @@
+package com.fabricaescuela.models.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado de un cambio de estado en lote")
+public record CambioEstadoLoteResponse(
+        @Schema(description = "Nombre del estado aplicado", example = "EN_BODEGA")
+        String nuevoEstado,
+
+        @Schema(description = "Cantidad de paquetes actualizados", example = "2")
+        int actualizados,
+
+        @Schema(description = "Cantidad de códigos que no corresponden a ningún paquete", example = "0")
+        int noEncontrados,
+
+        @Schema(description = "Resultado por código, en el orden recibido")
+        List<Resultado> resultados
+) {
+
+    public enum TipoResultado {
+        ACTUALIZADO,
+        NO_ENCONTRADO,
+        DUPLICADO
+    }
+
+    @Schema(description = "Resultado del cambio de estado para un código")
+    public record Resultado(
+            @Schema(example = "PKG-2025-000101")
+            String codigoPaquete,
+
+            @Schema(description = "ACTUALIZADO, NO_ENCONTRADO o DUPLICADO (repetido en el mismo lote)")
+            TipoResultado resultado
+    ) {
+    }
+}
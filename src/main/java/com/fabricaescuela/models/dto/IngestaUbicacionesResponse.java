@@ -0,0 +1,38 @@
+package com.fabricaescuela.models.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Resultado de la carga masiva de ubicaciones")
+public record IngestaUbicacionesResponse(
+        @Schema(description = "Registros leídos del cuerpo", example = "25000")
+        int recibidas,
+
+        @Schema(description = "Ubicaciones guardadas", example = "24998")
+        int registradas,
+
+        @Schema(description = "Registros rechazados", example = "2")
+        int rechazadas,
+
+        @Schema(description = "Detalle de los rechazos (como máximo los primeros "
+                + IngestaUbicacionesResponse.MAXIMO_RECHAZOS_DETALLADOS + ")")
+        List<Rechazo> rechazos
+) {
+
+    public static final int MAXIMO_RECHAZOS_DETALLADOS = 1000;
+
+    @Schema(description = "Registro que no se pudo guardar")
+    public record Rechazo(
+            @Schema(description = "Posición del registro en el cuerpo (línea en NDJSON, elemento en un arreglo), desde 1",
+                    example = "17")
+            int posicion,
+
+            @Schema(example = "PKG-2025-999999")
+            String codigoPaquete,
+
+            @Schema(example = "Paquete no encontrado")
+            String motivo
+    ) {
+    }
+}
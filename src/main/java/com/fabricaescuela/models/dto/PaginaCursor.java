@@ -0,0 +1,19 @@
+package com.fabricaescuela.models.dto;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema(description = "Página de resultados paginada por cursor")
+public record PaginaCursor<T>(
+        @Schema(description = "Elementos de la página, ordenados por ID ascendente")
+        List<T> items,
+
+        @Schema(description = "Cursor opaco para pedir la siguiente página; null cuando no hay más resultados",
+                example = "MTIz")
+        String next,
+
+        @Schema(description = "Tamaño máximo de página aplicado", example = "50")
+        int limit
+) {
+}
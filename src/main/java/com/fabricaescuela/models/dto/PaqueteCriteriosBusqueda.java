@@ -0,0 +1,26 @@
+package com.fabricaescuela.models.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros opcionales de GET /api/paquetes/buscar. Los campos null no se
+ * traducen en ningún predicado de la consulta.
+ */
+public record PaqueteCriteriosBusqueda(
+        String codigoPaquete,
+        LocalDate fechaRegistro,
+        LocalDate fechaDesde,
+        LocalDate fechaHasta,
+        String destino,
+        Integer idClienteRemitente,
+        Integer idClienteDestinatario,
+        Integer idEmpleadoResponsable,
+        String nombreEstado
+) {
+
+    public boolean estaVacio() {
+        return codigoPaquete == null && fechaRegistro == null && fechaDesde == null && fechaHasta == null
+                && destino == null && idClienteRemitente == null && idClienteDestinatario == null
+                && idEmpleadoResponsable == null && nombreEstado == null;
+    }
+}
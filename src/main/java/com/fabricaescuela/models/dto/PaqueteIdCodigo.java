@@ -0,0 +1,10 @@
+package com.fabricaescuela.models.dto;
+
+/**
+ * Proyección mínima para resolver lotes de códigos de paquete a sus IDs.
+ */
+public interface PaqueteIdCodigo {
+    Integer getId();
+
+    String getCodigoPaquete();
+}
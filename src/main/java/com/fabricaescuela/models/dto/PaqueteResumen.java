@@ -0,0 +1,19 @@
+package com.fabricaescuela.models.dto;
+
+/**
+ * Proyección de solo lectura usada por los listados de paquetes.
+ * Trae en una sola fila los datos del paquete y el nombre de su estado actual.
+ */
+public interface PaqueteResumen {
+    Integer getId();
+
+    String getCodigoPaquete();
+
+    String getRemitente();
+
+    String getDestinatario();
+
+    String getDestino();
+
+    String getEstadoActual();
+}
@@ -0,0 +1,26 @@
+package com.fabricaescuela.models.dto;
+
+import java.time.Instant;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+@Schema(description = "Ubicación reportada por un rastreador para un paquete")
+public record UbicacionPing(
+        @Schema(description = "Código del paquete", example = "PKG-2025-000101",
+                requiredMode = Schema.RequiredMode.REQUIRED)
+        @NotBlank(message = "El código del paquete es obligatorio")
+        String codigoPaquete,
+
+        @Schema(description = "Ubicación actual del paquete", example = "4.6533,-74.0836",
+                requiredMode = Schema.RequiredMode.REQUIRED, maxLength = 255)
+        @NotBlank(message = "La ubicación es obligatoria")
+        @Size(max = 255, message = "La ubicación no puede superar los 255 caracteres")
+        String ubicacion,
+
+        @Schema(description = "Momento de la lectura (ISO-8601); si se omite se usa la hora de recepción",
+                example = "2025-11-20T14:32:05Z")
+        Instant timestamp
+) {
+}
@@ -0,0 +1,18 @@
+package com.fabricaescuela.models.dto;
+
+import java.time.Instant;
+
+/**
+ * Versión de un paquete, suficiente para validar peticiones condicionales
+ * (If-None-Match / If-Modified-Since) sin cargar el paquete. Trae también el ID
+ * de su estado actual para decidir sin otra consulta si la respuesta es 200 o 404.
+ */
+public record VersionPaquete(Integer id, Long version, Instant ultimaModificacion, Integer idEstadoActual) {
+
+    /**
+     * ETag fuerte: cambia con cada cambio de estado, dirección o ubicación del paquete.
+     */
+    public String etag() {
+        return "\"" + id + "-" + version + "\"";
+    }
+}
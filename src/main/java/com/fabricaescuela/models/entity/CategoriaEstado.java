@@ -0,0 +1,66 @@
+package com.fabricaescuela.models.entity;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Clasificación funcional de un {@link Estado}.
+ * <p>
+ * Se calcula una sola vez a partir del nombre cuando el estado se carga o se guarda,
+ * para que las rutas calientes comparen categorías (o IDs de estado) en lugar de
+ * normalizar y comparar cadenas en cada llamada.
+ */
+public enum CategoriaEstado {
+    REGISTRADO,
+    /** En tránsito o en ruta hacia el destino. */
+    EN_TRANSITO,
+    EN_BODEGA,
+    EN_REPARTO,
+    ENTREGADO,
+    DEVUELTO,
+    CANCELADO,
+    OTRO;
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}");
+    private static final Pattern SEPARADORES = Pattern.compile("[\\s_-]");
+
+    public static CategoriaEstado clasificar(String nombreEstado) {
+        String clave = normalizar(nombreEstado);
+        if (clave.contains("transito") || clave.contains("enruta")) {
+            return EN_TRANSITO;
+        }
+        if (clave.contains("reparto")) {
+            return EN_REPARTO;
+        }
+        if (clave.contains("bodega")) {
+            return EN_BODEGA;
+        }
+        if (clave.contains("devuelto") || clave.contains("devolucion")) {
+            return DEVUELTO;
+        }
+        if (clave.contains("cancelado")) {
+            return CANCELADO;
+        }
+        if (clave.contains("entregado")) {
+            return ENTREGADO;
+        }
+        if (clave.contains("registrado")) {
+            return REGISTRADO;
+        }
+        return OTRO;
+    }
+
+    /**
+     * Clave de comparación de un nombre de estado: sin tildes, en minúsculas y sin
+     * espacios, guiones ni guiones bajos ("En Tránsito" y "EN_TRANSITO" dan "entransito").
+     */
+    public static String normalizar(String nombreEstado) {
+        if (nombreEstado == null) {
+            return "";
+        }
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(nombreEstado, Normalizer.Form.NFD))
+                .replaceAll("");
+        return SEPARADORES.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll("");
+    }
+}
@@ -1,15 +1,21 @@
 package com.fabricaescuela.models.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -33,4 +39,17 @@ public class Estado {
     @Size(max = 255, message = "La descripción no puede exceder 255 caracteres")
     @Column(name = "descripcionEstado", length = 255)
     private String descripcionEstado;
+
+    // Calculada desde el nombre al cargar o guardar; no se persiste
+    @Transient
+    @Setter(AccessLevel.NONE)
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private CategoriaEstado categoria;
+
+    @PostLoad
+    @PrePersist
+    @PreUpdate
+    void clasificar() {
+        this.categoria = CategoriaEstado.clasificar(nombreEstado);
+    }
 }
\ No newline at end of file
@@ -12,6 +12,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Getter;
 import lombok.Setter;
@@ -22,8 +23,11 @@ import lombok.Setter;
 @Table(name = "historial_estados")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class HistorialEstado {
+    // Secuencia con bloques de 50 IDs (V7): permite insertar historiales en lotes JDBC.
+    // Cada instancia reserva sus bloques, así que el ID no sigue el orden de registro
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "historial_estados_seq")
+    @SequenceGenerator(name = "historial_estados_seq", sequenceName = "historial_estados_seq", allocationSize = 50)
     @Column(name = "idHistoriaEstadol", nullable = false)
     private Integer id;
 
@@ -41,4 +45,9 @@ public class HistorialEstado {
 
     @Column(name = "fechaHora")
     private LocalDate fechaHora;
+
+    // Orden de registro asignado por la base al insertar (V8); desempata los
+    // historiales del mismo día. Solo se usa en consultas: queda null al persistir
+    @Column(name = "ordenRegistro", insertable = false, updatable = false)
+    private Long ordenRegistro;
 }
\ No newline at end of file
@@ -1,28 +1,36 @@
 package com.fabricaescuela.models.entity;
 
+import java.time.Instant;
 import java.time.LocalDate;
 
+import com.fabricaescuela.service.CodigoPaqueteIndiceListener;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
 @Getter
 @Setter
 @Entity
-@Table(name = "paquetes")  // ✅ Tabla "paquetes"
+@Table(name = "paquetes")  // ✅ Tabla "paquetes" (índices en db/migration)
+@EntityListeners(CodigoPaqueteIndiceListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Paquete {      // ✅ Clase "Paquete"
     
@@ -67,4 +75,35 @@ public class Paquete {      // ✅ Clase "Paquete"
 
     @Column(name = "idClienteDestinatario")
     private Integer idClienteDestinatario;
+
+    // Bloqueo optimista: Hibernate la incrementa en cada UPDATE y falla si otra
+    // transacción la cambió antes. También se incrementa al registrar ubicaciones
+    // o cambios de estado, por eso sirve como ETag
+    @Version
+    @Setter(AccessLevel.NONE)
+    @Column(name = "version", nullable = false)
+    private Long version = 0L;
+
+    @Setter(AccessLevel.NONE)
+    @Column(name = "ultimaModificacion", nullable = false)
+    private Instant ultimaModificacion;
+
+    @PrePersist
+    void registrarCreacion() {
+        this.ultimaModificacion = Instant.now();
+    }
+
+    @PreUpdate
+    void registrarModificacion() {
+        this.ultimaModificacion = Instant.now();
+    }
+
+    /**
+     * Marca el paquete como modificado aunque ninguna otra columna cambie (p. ej.
+     * se registra otra vez el estado que ya tenía): el UPDATE resultante incrementa
+     * la versión una sola vez y falla si otra transacción la cambió antes.
+     */
+    public void registrarCambio() {
+        this.ultimaModificacion = Instant.now();
+    }
 }
\ No newline at end of file
@@ -3,13 +3,34 @@ package com.fabricaescuela.repository;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.fabricaescuela.models.entity.HistorialEstado;
 
 public interface HistorialEstadoRepository extends JpaRepository<HistorialEstado, Integer> {
+    // Las respuestas serializan paquete y estado: se traen en la misma consulta
+    @EntityGraph(attributePaths = {"idPaquete", "idPaquete.idEstadoActual", "idEstado"})
     List<HistorialEstado> findByIdPaquete_Id(Integer idPaquete);
 
+    @Override
+    @EntityGraph(attributePaths = {"idPaquete", "idPaquete.idEstadoActual", "idEstado"})
+    Optional<HistorialEstado> findById(Integer id);
+
     Optional<HistorialEstado> findTopByIdPaquete_IdOrderByFechaHoraDesc(Integer idPaquete);
+
+    // Último historial del paquete; a igual fecha gana el registrado después
+    Optional<HistorialEstado> findTopByIdPaquete_IdOrderByFechaHoraDescOrdenRegistroDesc(Integer idPaquete);
+
+    @Query("SELECT h.idPaquete.id FROM HistorialEstado h WHERE h.id = :id")
+    Optional<Integer> findIdPaqueteById(@Param("id") Integer id);
+
+    // Paginación por cursor: siguiente bloque de historiales después del ID dado; incluye el
+    // estado actual de cada paquete (EAGER), que si no se cargaría con un SELECT por paquete
+    @EntityGraph(attributePaths = {"idPaquete", "idPaquete.idEstadoActual", "idEstado"})
+    List<HistorialEstado> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
 }
 
@@ -1,12 +1,24 @@
 package com.fabricaescuela.repository;
 
 import com.fabricaescuela.models.entity.Novedad;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.util.List;
+import java.util.Optional;
 
 public interface NovedadRepository extends JpaRepository<Novedad, Integer> {
 
     List<Novedad> findByIdPaquete_Id(Integer paqueteId);
+
+    // La respuesta serializa el paquete con su estado: se traen en la misma consulta
+    @Override
+    @EntityGraph(attributePaths = {"idPaquete", "idPaquete.idEstadoActual"})
+    Optional<Novedad> findById(Integer id);
+
+    // Paginación por cursor: siguiente bloque de novedades después del ID dado
+    @EntityGraph(attributePaths = {"idPaquete", "idPaquete.idEstadoActual"})
+    List<Novedad> findByIdGreaterThanOrderByIdAsc(Integer id, Limit limit);
 }
 
@@ -0,0 +1,23 @@
+package com.fabricaescuela.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import com.fabricaescuela.models.entity.Paquete;
+
+/**
+ * Exportación masiva de paquetes con una consulta armada según los filtros
+ * recibidos (implementada en {@link PaqueteExportacionRepositoryImpl}).
+ */
+public interface PaqueteExportacionRepository {
+
+    /**
+     * Cursor del lado del servidor, ordenado por ID, con el estado actual en la misma
+     * fila. Cada argumento null se omite del WHERE en lugar de compararse con NULL,
+     * así Postgres planifica solo las condiciones pedidas.
+     *
+     * @param idsEstado estados actuales aceptados, ya resueltos con el catálogo
+     */
+    Stream<Paquete> streamParaExportar(LocalDate fechaDesde, LocalDate fechaHasta, Collection<Integer> idsEstado);
+}
@@ -0,0 +1,50 @@
+package com.fabricaescuela.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.fabricaescuela.models.entity.Paquete;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+
+class PaqueteExportacionRepositoryImpl implements PaqueteExportacionRepository {
+
+    private final EntityManager entityManager;
+
+    PaqueteExportacionRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Stream<Paquete> streamParaExportar(LocalDate fechaDesde, LocalDate fechaHasta,
+                                              Collection<Integer> idsEstado) {
+        Specification<Paquete> filtro = Specification.allOf(
+                PaqueteSpecifications.fechaRegistroDesde(fechaDesde),
+                PaqueteSpecifications.fechaRegistroHasta(fechaHasta),
+                PaqueteSpecifications.estadoActualEn(idsEstado),
+                PaqueteSpecifications.conEstadoActual());
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Paquete> query = cb.createQuery(Paquete.class);
+        Root<Paquete> paquete = query.from(Paquete.class);
+        Predicate condiciones = filtro.toPredicate(paquete, query, cb);
+        if (condiciones != null) {
+            query.where(condiciones);
+        }
+        query.orderBy(cb.asc(paquete.get("id")));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, 1000)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHEABLE, false)
+                .getResultStream();
+    }
+}
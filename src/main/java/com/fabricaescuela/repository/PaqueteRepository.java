@@ -1,45 +1,191 @@
 package com.fabricaescuela.repository;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.fabricaescuela.models.dto.PaqueteIdCodigo;
+import com.fabricaescuela.models.dto.PaqueteResumen;
+import com.fabricaescuela.models.dto.VersionPaquete;
+import com.fabricaescuela.models.entity.Estado;
 import com.fabricaescuela.models.entity.Paquete;
 
 @Repository
-public interface PaqueteRepository extends JpaRepository<Paquete, Integer> {
+// Búsqueda por criterios: JpaSpecificationExecutor + PaqueteSpecifications; exportación: PaqueteExportacionRepository
+public interface PaqueteRepository extends JpaRepository<Paquete, Integer>, JpaSpecificationExecutor<Paquete>,
+        PaqueteExportacionRepository {
     
-    // Ya existe
+    // Con el estado actual en la misma consulta (la relación EAGER haría un SELECT aparte)
+    @EntityGraph(attributePaths = "idEstadoActual")
     Optional<Paquete> findByCodigoPaquete(String codigoPaquete);
     
+    // Solo el ID, sin hidratar el paquete ni su estado (respaldo de CodigoPaqueteIndice)
+    @Query("SELECT p.id FROM Paquete p WHERE p.codigoPaquete = :codigoPaquete")
+    Optional<Integer> findIdByCodigoPaquete(@Param("codigoPaquete") String codigoPaquete);
+    
+    // Carga el paquete con su estado para cambiarlo; el UPDATE al confirmar lleva la
+    // versión leída, así que de dos transacciones que lo leen a la vez solo confirma una
+    @EntityGraph(attributePaths = "idEstadoActual")
+    @Query("SELECT p FROM Paquete p WHERE p.id = :id")
+    Optional<Paquete> findParaActualizar(@Param("id") Integer id);
+    
+    // Solo la versión, para responder 304 sin cargar el paquete
+    @Query("SELECT new com.fabricaescuela.models.dto.VersionPaquete(p.id, p.version, p.ultimaModificacion, " +
+           "p.idEstadoActual.id) FROM Paquete p WHERE p.id = :id")
+    Optional<VersionPaquete> findVersionById(@Param("id") Integer id);
+    
+    // La versión solo si el paquete tiene alguna ubicación: sin ubicaciones no hay última (404)
+    @Query("SELECT new com.fabricaescuela.models.dto.VersionPaquete(p.id, p.version, p.ultimaModificacion, " +
+           "p.idEstadoActual.id) FROM Paquete p WHERE p.id = :id " +
+           "AND EXISTS (SELECT 1 FROM HistorialUbicacion h WHERE h.idPaquete = p)")
+    Optional<VersionPaquete> findVersionConUbicacionesById(@Param("id") Integer id);
+    
+    // Cambios que no pasan por la entidad (p. ej. nuevas ubicaciones) también invalidan el ETag
+    @Modifying
+    @Query("UPDATE Paquete p SET p.version = p.version + 1, p.ultimaModificacion = :ahora WHERE p.id = :id")
+    int marcarModificado(@Param("id") Integer id, @Param("ahora") Instant ahora);
+    
+    @Modifying
+    @Query("UPDATE Paquete p SET p.version = p.version + 1, p.ultimaModificacion = :ahora WHERE p.id IN :ids")
+    int marcarModificados(@Param("ids") Collection<Integer> ids, @Param("ahora") Instant ahora);
+    
+    // Resuelve un lote de códigos con una sola consulta (índice único uk_paquetes_codigo)
+    @Query("SELECT p.id AS id, p.codigoPaquete AS codigoPaquete FROM Paquete p WHERE p.codigoPaquete IN :codigos")
+    List<PaqueteIdCodigo> findIdsPorCodigos(@Param("codigos") Collection<String> codigos);
+    
+    // Cambio de estado en lote: una sola sentencia; incrementa la versión de cada paquete
+    // para que las actualizaciones individuales en curso fallen por bloqueo optimista.
+    // No toca los paquetes con un historial de fecha posterior: su estado actual es ese
+    @Modifying
+    @Query("UPDATE Paquete p SET p.idEstadoActual = :estado, p.version = p.version + 1, " +
+           "p.ultimaModificacion = :ahora WHERE p.id IN :ids " +
+           "AND NOT EXISTS (SELECT 1 FROM HistorialEstado h WHERE h.idPaquete = p AND h.fechaHora > :fecha)")
+    int actualizarEstadoActual(@Param("ids") Collection<Integer> ids,
+                               @Param("estado") Estado estado,
+                               @Param("fecha") LocalDate fecha,
+                               @Param("ahora") Instant ahora);
+    
+    // Los paquetes que actualizarEstadoActual no toca también cambiaron su historial (y su ETag)
+    @Modifying
+    @Query("UPDATE Paquete p SET p.version = p.version + 1, p.ultimaModificacion = :ahora WHERE p.id IN :ids " +
+           "AND EXISTS (SELECT 1 FROM HistorialEstado h WHERE h.idPaquete = p AND h.fechaHora > :fecha)")
+    int marcarModificadosConHistorialPosterior(@Param("ids") Collection<Integer> ids,
+                                               @Param("fecha") LocalDate fecha,
+                                               @Param("ahora") Instant ahora);
+    
+    // Página de paquetes (keyset por ID) con el nombre de su estado actual en una sola consulta
+    @Query("SELECT p.id AS id, p.codigoPaquete AS codigoPaquete, p.remitente AS remitente, " +
+           "p.destinatario AS destinatario, p.destino AS destino, e.nombreEstado AS estadoActual " +
+           "FROM Paquete p LEFT JOIN p.idEstadoActual e " +
+           "WHERE p.id > :despuesDe ORDER BY p.id")
+    List<PaqueteResumen> findResumenesDespuesDe(@Param("despuesDe") int despuesDe, Limit limite);
+    
     // ⭐ AGREGAR ESTOS MÉTODOS ⭐
     
     // Buscar por fecha de registro
     List<Paquete> findByFechaRegistro(LocalDate fechaRegistro);
     
-    // Buscar paquetes en tránsito
-    @Query("SELECT p FROM Paquete p WHERE LOWER(p.idEstadoActual.nombreEstado) = 'en transito'")
-    List<Paquete> findPaquetesEnTransito();
-    
-    // Verificar si un paquete está en tránsito
-    @Query("SELECT CASE WHEN COUNT(p) > 0 THEN true ELSE false END " +
-           "FROM Paquete p WHERE p.id = :idPaquete " +
-           "AND LOWER(p.idEstadoActual.nombreEstado) = 'en transito'")
-    boolean isPaqueteEnTransito(@Param("idPaquete") Integer idPaquete);
-    
-    // Buscar por múltiples criterios (flexible)
-    @Query("SELECT p FROM Paquete p WHERE " +
-           "(:codigoPaquete IS NULL OR p.codigoPaquete = :codigoPaquete) AND " +
-           "(:fechaRegistro IS NULL OR p.fechaRegistro = :fechaRegistro) AND " +
-           "(:nombreEstado IS NULL OR p.idEstadoActual.nombreEstado = :nombreEstado)")
-    List<Paquete> buscarPorCriterios(
-        @Param("codigoPaquete") String codigoPaquete,
-        @Param("fechaRegistro") LocalDate fechaRegistro,
-        @Param("nombreEstado") String nombreEstado
-    );
-}
\ No newline at end of file
+    // Página (keyset por ID) de paquetes cuyo estado actual es uno de los indicados. Los IDs de
+    // la página salen de idx_paquetes_estado_actual_id (index-only scan, ya ordenados por ID
+    // dentro del estado) y solo esas filas se leen de paquetes y se unen con su estado
+    @Query(value = "WITH pagina AS (" +
+                   "  SELECT id_paquete FROM paquetes " +
+                   "  WHERE id_estado_actual IN (:idsEstado) AND id_paquete > :despuesDe " +
+                   "  ORDER BY id_paquete LIMIT :limite) " +
+                   "SELECT p.id_paquete AS id, p.codigo_paquete AS codigoPaquete, p.remitente AS remitente, " +
+                   "p.destinatario AS destinatario, p.destino AS destino, e.nombre_estado AS estadoActual " +
+                   "FROM pagina g JOIN paquetes p ON p.id_paquete = g.id_paquete " +
+                   "LEFT JOIN estados e ON e.id_estado = p.id_estado_actual " +
+                   "ORDER BY p.id_paquete",
+           nativeQuery = true)
+    List<PaqueteResumen> findPaquetesEnTransito(@Param("idsEstado") Collection<Integer> idsEstado,
+                                                @Param("despuesDe") int despuesDe,
+                                                @Param("limite") int limite);
+    
+    // Verificar si el estado actual de un paquete es uno de los indicados; solo lee
+    // columnas de idx_paquetes_estado_actual_id, así que puede resolverse con un index-only scan
+    @Query("SELECT CASE WHEN COUNT(p.id) > 0 THEN true ELSE false END " +
+           "FROM Paquete p WHERE p.idEstadoActual.id IN :idsEstado " +
+           "AND p.id = :idPaquete")
+    boolean isPaqueteEnTransito(@Param("idPaquete") Integer idPaquete,
+                                @Param("idsEstado") Collection<Integer> idsEstado);
+    
+    // Búsqueda por texto parcial en código, remitente y destinatario. Cada fuente de candidatos
+    // lee a lo sumo :limite filas de un índice (offset + tamaño de página + 1) y solo se ordena esa unión:
+    //  - código exacto (3), código por prefijo (2) y remitente/destinatario por prefijo (1.5), con los
+    //    índices B-tree COLLATE "C" de lower(...), que devuelven los prefijos ya ordenados;
+    //  - si los prefijos no llenan la página, las demás coincidencias LIKE '%texto%' por similitud,
+    //    con los índices GiST de trigramas recorridos en orden de distancia (<->). La condición
+    //    sobre count(*) se evalúa una vez: con la página llena de prefijos ni se recorren.
+    // :texto llega en minúsculas y :contiene / :prefijo ya traen escapados los comodines de LIKE
+    @Query(value = "WITH prefijos AS MATERIALIZED (" +
+                   "  SELECT DISTINCT ON (c.id_paquete) c.id_paquete, c.relevancia, c.clave FROM (" +
+                   "    (SELECT p.id_paquete, CAST(3 AS real) AS relevancia, lower(p.codigo_paquete) COLLATE \"C\" AS clave " +
+                   "     FROM paquetes p WHERE lower(p.codigo_paquete) COLLATE \"C\" = :texto LIMIT :limite) " +
+                   "    UNION ALL " +
+                   "    (SELECT p.id_paquete, CAST(2 AS real), lower(p.codigo_paquete) COLLATE \"C\" " +
+                   "     FROM paquetes p WHERE lower(p.codigo_paquete) COLLATE \"C\" LIKE :prefijo ESCAPE '\\' " +
+                   "     ORDER BY lower(p.codigo_paquete) COLLATE \"C\", p.id_paquete LIMIT :limite) " +
+                   "    UNION ALL " +
+                   "    (SELECT p.id_paquete, CAST(1.5 AS real), lower(p.remitente) COLLATE \"C\" " +
+                   "     FROM paquetes p WHERE lower(p.remitente) COLLATE \"C\" LIKE :prefijo ESCAPE '\\' " +
+                   "     ORDER BY lower(p.remitente) COLLATE \"C\", p.id_paquete LIMIT :limite) " +
+                   "    UNION ALL " +
+                   "    (SELECT p.id_paquete, CAST(1.5 AS real), lower(p.destinatario) COLLATE \"C\" " +
+                   "     FROM paquetes p WHERE lower(p.destinatario) COLLATE \"C\" LIKE :prefijo ESCAPE '\\' " +
+                   "     ORDER BY lower(p.destinatario) COLLATE \"C\", p.id_paquete LIMIT :limite)) c " +
+                   "  ORDER BY c.id_paquete, c.relevancia DESC, c.clave), " +
+                   "similares AS (" +
+                   "  SELECT s.id_paquete, max(s.relevancia) AS relevancia, '' COLLATE \"C\" AS clave FROM (" +
+                   "    (SELECT p.id_paquete, similarity(lower(p.codigo_paquete), :texto) AS relevancia " +
+                   "     FROM paquetes p WHERE lower(p.codigo_paquete) LIKE :contiene ESCAPE '\\' " +
+                   "     ORDER BY lower(p.codigo_paquete) <-> :texto LIMIT :limite) " +
+                   "    UNION ALL " +
+                   "    (SELECT p.id_paquete, similarity(lower(p.remitente), :texto) " +
+                   "     FROM paquetes p WHERE lower(p.remitente) LIKE :contiene ESCAPE '\\' " +
+                   "     ORDER BY lower(p.remitente) <-> :texto LIMIT :limite) " +
+                   "    UNION ALL " +
+                   "    (SELECT p.id_paquete, similarity(lower(p.destinatario), :texto) " +
+                   "     FROM paquetes p WHERE lower(p.destinatario) LIKE :contiene ESCAPE '\\' " +
+                   "     ORDER BY lower(p.destinatario) <-> :texto LIMIT :limite)) s " +
+                   "  WHERE (SELECT count(*) FROM prefijos) < :limite " +
+                   "    AND s.id_paquete NOT IN (SELECT id_paquete FROM prefijos) " +
+                   "  GROUP BY s.id_paquete) " +
+                   "SELECT p.id_paquete AS id, p.codigo_paquete AS codigoPaquete, p.remitente AS remitente, " +
+                   "p.destinatario AS destinatario, p.destino AS destino, e.nombre_estado AS estadoActual " +
+                   "FROM (SELECT * FROM prefijos UNION ALL SELECT * FROM similares) c " +
+                   "JOIN paquetes p ON p.id_paquete = c.id_paquete " +
+                   "LEFT JOIN estados e ON e.id_estado = p.id_estado_actual " +
+                   "ORDER BY c.relevancia DESC, c.clave, p.id_paquete",
+           nativeQuery = true)
+    Slice<PaqueteResumen> buscarPorTexto(@Param("texto") String texto,
+                                         @Param("contiene") String contiene,
+                                         @Param("prefijo") String prefijo,
+                                         @Param("limite") int limite,
+                                         Pageable pageable);
+    
+    // Recalcula idEstadoActual desde el último historial de cada paquete (tras cargas masivas)
+    @Modifying
+    @Query(value = "UPDATE paquetes p SET id_estado_actual = ultimo.id_estado, " +
+                   "version = p.version + 1, ultima_modificacion = now() " +
+                   "FROM (SELECT DISTINCT ON (he.id_paquete) he.id_paquete, he.id_estado " +
+                   "      FROM historial_estados he " +
+                   "      ORDER BY he.id_paquete, he.fecha_hora DESC, he.orden_registro DESC) ultimo " +
+                   "WHERE ultimo.id_paquete = p.id_paquete " +
+                   "AND p.id_estado_actual IS DISTINCT FROM ultimo.id_estado",
+           nativeQuery = true)
+    int recalcularEstadoActualDesdeHistorial();
+}
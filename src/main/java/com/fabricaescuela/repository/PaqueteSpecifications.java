@@ -0,0 +1,92 @@
+package com.fabricaescuela.repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.fabricaescuela.models.entity.Paquete;
+
+import jakarta.persistence.criteria.JoinType;
+
+/**
+ * Predicados de búsqueda de paquetes. Cada método devuelve null cuando el
+ * valor no viene, y {@link Specification#allOf} ignora los null: el SQL generado solo lleva las condiciones pedidas y Postgres puede
+ * elegir el índice adecuado para cada combinación.
+ */
+public final class PaqueteSpecifications {
+
+    private PaqueteSpecifications() {
+    }
+
+    public static Specification<Paquete> codigoIgual(String codigoPaquete) {
+        return codigoPaquete == null ? null
+                : (root, query, cb) -> cb.equal(root.get("codigoPaquete"), codigoPaquete);
+    }
+
+    public static Specification<Paquete> fechaRegistroIgual(LocalDate fecha) {
+        return fecha == null ? null
+                : (root, query, cb) -> cb.equal(root.get("fechaRegistro"), fecha);
+    }
+
+    public static Specification<Paquete> fechaRegistroDesde(LocalDate desde) {
+        return desde == null ? null
+                : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("fechaRegistro"), desde);
+    }
+
+    public static Specification<Paquete> fechaRegistroHasta(LocalDate hasta) {
+        return hasta == null ? null
+                : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("fechaRegistro"), hasta);
+    }
+
+    public static Specification<Paquete> destinoIgual(String destino) {
+        return destino == null ? null
+                : (root, query, cb) -> cb.equal(root.get("destino"), destino);
+    }
+
+    public static Specification<Paquete> clienteRemitente(Integer idCliente) {
+        return idCliente == null ? null
+                : (root, query, cb) -> cb.equal(root.get("idClienteRemitente"), idCliente);
+    }
+
+    public static Specification<Paquete> clienteDestinatario(Integer idCliente) {
+        return idCliente == null ? null
+                : (root, query, cb) -> cb.equal(root.get("idClienteDestinatario"), idCliente);
+    }
+
+    public static Specification<Paquete> empleadoResponsable(Integer idEmpleado) {
+        return idEmpleado == null ? null
+                : (root, query, cb) -> cb.equal(root.get("idEmpleadoResponsable"), idEmpleado);
+    }
+
+    /**
+     * Filtra por la FK idEstadoActual (el estado ya se resolvió a su ID con el
+     * catálogo), así que no hace falta unir con la tabla estados.
+     */
+    public static Specification<Paquete> estadoActual(Integer idEstado) {
+        return idEstado == null ? null
+                : (root, query, cb) -> cb.equal(root.get("idEstadoActual").get("id"), idEstado);
+    }
+
+    /**
+     * Como {@link #estadoActual(Integer)} para varios estados (p. ej. los que comparten
+     * nombre normalizado).
+     */
+    public static Specification<Paquete> estadoActualEn(Collection<Integer> idsEstado) {
+        return idsEstado == null ? null
+                : (root, query, cb) -> root.get("idEstadoActual").get("id").in(idsEstado);
+    }
+
+    /**
+     * Trae el estado actual en la misma consulta para no disparar un SELECT
+     * por estado. La consulta de conteo de la página no lleva el fetch.
+     */
+    public static Specification<Paquete> conEstadoActual() {
+        return (root, query, cb) -> {
+            if (query != null && query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("idEstadoActual", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+}
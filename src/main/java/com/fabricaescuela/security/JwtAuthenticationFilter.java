@@ -1,14 +1,10 @@
 package com.fabricaescuela.security;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
@@ -37,34 +33,25 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         String path = request.getRequestURI();
         String method = request.getMethod();
         
-        // Excluir Swagger, /error, health check y todos los métodos GET en /api/**
-        if (path != null && (path.startsWith("/swagger-ui") || 
-            path.startsWith("/v3/api-docs") ||
-            path.startsWith("/swagger-resources") ||
-            path.startsWith("/webjars") ||
-            path.startsWith("/configuration") ||
-            path.startsWith("/actuator/health") ||
-            path.equals("/error") ||
-            (method.equals("GET") && path.startsWith("/api/")))) {
+        if (esRutaPublica(method, path)) {
             filterChain.doFilter(request, response);
             return;
         }
         
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String username = null;
-        String jwt = null;
+        JwtPrincipal principal = null;
 
         // 🔒 Detectar si es una ruta protegida (POST/PUT/DELETE en /api/**)
         boolean isProtectedRoute = path != null && path.startsWith("/api/") && 
                                    (method.equals("POST") || method.equals("PUT") || method.equals("DELETE"));
 
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Firma, expiración y claims en una sola verificación (cacheada por token)
+                principal = jwtUtil.verificar(authorizationHeader.substring(7));
             } catch (Exception e) {
-                logger.error("❌ Error al extraer username del token: " + e.getMessage());
+                logger.error("❌ Token JWT inválido: " + e.getMessage());
                 // Si es ruta protegida y el token es inválido, responder 401
                 if (isProtectedRoute) {
                     response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -87,45 +74,27 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            try {
-                if (jwtUtil.validateToken(jwt, username)) {
-                    String role = jwtUtil.extractRole(jwt);
-                    List<String> permisos = jwtUtil.extractPermisos(jwt);
-
-                    List<SimpleGrantedAuthority> authorities = new ArrayList<>();
-                    if (permisos != null) {
-                        authorities = permisos.stream()
-                                .map(SimpleGrantedAuthority::new)
-                                .collect(Collectors.toList());
-                    }
-                    authorities.add(new SimpleGrantedAuthority("ROLE_" + role));
-
-                    UsernamePasswordAuthenticationToken authenticationToken = 
-                            new UsernamePasswordAuthenticationToken(username, null, authorities);
-                    authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+        if (principal != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            UsernamePasswordAuthenticationToken authenticationToken = 
+                    new UsernamePasswordAuthenticationToken(principal.username(), null, principal.autoridades());
+            authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
-                    SecurityContextHolder.getContext().setAuthentication(authenticationToken);
-                    logger.info("✅ Usuario autenticado: {} con rol: {}", username, role);
-                } else if (isProtectedRoute) {
-                    // ❌ Token inválido en ruta protegida
-                    logger.error("❌ Token JWT inválido para usuario: {}", username);
-                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    response.setContentType("application/json");
-                    response.getWriter().write("{\"error\": \"Token JWT inválido o expirado. Por favor, inicie sesión nuevamente.\"}");
-                    return;
-                }
-            } catch (Exception e) {
-                logger.error("❌ Error validando token JWT: {}", e.getMessage());
-                if (isProtectedRoute) {
-                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                    response.setContentType("application/json");
-                    response.getWriter().write("{\"error\": \"Token JWT inválido o expirado. Error: " + e.getMessage() + "\"}");
-                    return;
-                }
-            }
+            SecurityContextHolder.getContext().setAuthentication(authenticationToken);
+            logger.info("✅ Usuario autenticado: {} con rol: {}", principal.username(), principal.role());
         }
 
         filterChain.doFilter(request, response);
     }
+
+    // Excluir Swagger, /error, health check y todos los métodos GET en /api/**
+    static boolean esRutaPublica(String method, String path) {
+        return path != null && (path.startsWith("/swagger-ui") ||
+            path.startsWith("/v3/api-docs") ||
+            path.startsWith("/swagger-resources") ||
+            path.startsWith("/webjars") ||
+            path.startsWith("/configuration") ||
+            path.startsWith("/actuator/health") ||
+            path.equals("/error") ||
+            ("GET".equals(method) && path.startsWith("/api/")));
+    }
 }
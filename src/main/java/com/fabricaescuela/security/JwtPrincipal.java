@@ -0,0 +1,28 @@
+package com.fabricaescuela.security;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * Datos de un JWT ya verificado (firma y expiración). Inmutable, así que se
+ * puede compartir entre peticiones que usan el mismo token.
+ */
+public record JwtPrincipal(String username, String role, List<String> permisos, Instant expiracion) {
+
+    public JwtPrincipal {
+        permisos = permisos != null ? List.copyOf(permisos) : List.of();
+    }
+
+    /**
+     * Permisos del token más {@code ROLE_<role>}.
+     */
+    public List<SimpleGrantedAuthority> autoridades() {
+        List<SimpleGrantedAuthority> autoridades = new ArrayList<>(permisos.size() + 1);
+        permisos.forEach(permiso -> autoridades.add(new SimpleGrantedAuthority(permiso)));
+        autoridades.add(new SimpleGrantedAuthority("ROLE_" + role));
+        return autoridades;
+    }
+}
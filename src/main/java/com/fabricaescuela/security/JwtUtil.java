@@ -1,68 +1,113 @@
 package com.fabricaescuela.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
-import java.util.function.Function;
 
+/**
+ * Verifica los JWT emitidos por login-service.
+ * <p>
+ * La clave y el parser se construyen una sola vez. Cada token se verifica una
+ * vez y el resultado ({@link JwtPrincipal}) queda en una caché acotada hasta que
+ * el token expira: los escáneres reutilizan el mismo token durante horas. La
+ * clave de la caché es el SHA-256 del token, no el token en sí.
+ */
 @Component
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
-    private String secret;
-
-    @Value("${jwt.expiration}")
-    private Long expiration;
-
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
-    }
+    private final JwtParser parser;
+    private final Duration vigenciaMaximaEnCache;
+    private final Cache<String, JwtPrincipal> verificados;
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.cache.maximo:10000}") long maximoEnCache,
+                   @Value("${jwt.cache.vigencia-maxima:1h}") Duration vigenciaMaximaEnCache) {
+        this.parser = Jwts.parser()
+                .verifyWith(Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8)))
+                .build();
+        this.vigenciaMaximaEnCache = vigenciaMaximaEnCache;
+        this.verificados = Caffeine.newBuilder()
+                .maximumSize(maximoEnCache)
+                .expireAfter(new HastaExpiracion())
+                .build();
     }
 
-    public String extractRole(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("role", String.class);
+    /**
+     * Verifica firma y expiración y devuelve los datos del token.
+     *
+     * @throws JwtException si el token es inválido o expiró
+     */
+    public JwtPrincipal verificar(String token) {
+        String clave = digest(token);
+        JwtPrincipal principal = verificados.get(clave, sinVerificar -> parsear(token));
+        // La caché expira la entrada al vencer el token, pero puede tardar un poco en retirarla
+        if (principal.expiracion() != null && !principal.expiracion().isAfter(Instant.now())) {
+            verificados.invalidate(clave);
+            throw new JwtException("Token JWT expirado");
+        }
+        return principal;
     }
 
+    // Verificación completa sin caché; visible en el paquete para el benchmark JMH
     @SuppressWarnings("unchecked")
-    public List<String> extractPermisos(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("permisos", List.class);
+    JwtPrincipal parsear(String token) {
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiracion = claims.getExpiration();
+        return new JwtPrincipal(
+                claims.getSubject(),
+                claims.get("role", String.class),
+                claims.get("permisos", List.class),
+                expiracion != null ? expiracion.toInstant() : null);
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-    }
+    // Cada entrada vive hasta la expiración de su token (o vigenciaMaximaEnCache si no tiene exp)
+    private final class HastaExpiracion implements Expiry<String, JwtPrincipal> {
 
-    public Boolean validateToken(String token, String username) {
-        final String extractedUsername = extractUsername(token);
-        return (extractedUsername.equals(username) && !isTokenExpired(token));
-    }
+        @Override
+        public long expireAfterCreate(String clave, JwtPrincipal principal, long ahora) {
+            Duration vigencia = vigenciaMaximaEnCache;
+            if (principal.expiracion() != null) {
+                Duration restante = Duration.between(Instant.now(), principal.expiracion());
+                vigencia = restante.compareTo(vigencia) < 0 ? restante : vigencia;
+            }
+            return Math.max(vigencia.toNanos(), 0);
+        }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
-    }
+        @Override
+        public long expireAfterUpdate(String clave, JwtPrincipal principal, long ahora, long vigenciaActual) {
+            return vigenciaActual;
+        }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        @Override
+        public long expireAfterRead(String clave, JwtPrincipal principal, long ahora, long vigenciaActual) {
+            return vigenciaActual;
+        }
     }
 }
@@ -39,6 +39,10 @@ public class SecurityConfig {
                         // Swagger sin autenticación
                         .requestMatchers("/v3/api-docs/**", "/swagger-ui/**", "/swagger-resources/**", "/webjars/**")
                         .permitAll()
+                        // Página de error: deja pasar los códigos de ResponseStatusException (400, 404, 409...)
+                        .requestMatchers("/error").permitAll()
+                        // Health check público; el resto de Actuator (métricas) requiere JWT
+                        .requestMatchers("/actuator/health").permitAll()
                         // ✅ Permitir OPTIONS para preflight checks de CORS
                         .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**").permitAll()
                         // GET endpoints públicos (consultas sin JWT)
@@ -62,7 +66,8 @@ public class SecurityConfig {
         configuration.setAllowedOriginPatterns(Arrays.asList(allowedOrigins.split(",")));
         configuration.setAllowedMethods(Arrays.asList("*"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
-        configuration.setExposedHeaders(Arrays.asList("Authorization"));
+        // ETag no es un header "simple": sin exponerlo el frontend no puede leerlo para If-None-Match
+        configuration.setExposedHeaders(Arrays.asList("Authorization", "ETag"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L);
 
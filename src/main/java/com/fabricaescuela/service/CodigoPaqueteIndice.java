@@ -0,0 +1,302 @@
+package com.fabricaescuela.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fabricaescuela.models.dto.PaqueteIdCodigo;
+import com.fabricaescuela.repository.PaqueteRepository;
+
+/**
+ * Índice en memoria de {@code codigoPaquete → idPaquete}.
+ * <p>
+ * Evita cargar el {@code Paquete} completo (con su {@code Estado} EAGER) solo para
+ * conocer su ID. Es una tabla hash de direccionamiento abierto sin objetos por
+ * entrada: los códigos se guardan en UTF-8 uno detrás de otro en un único
+ * {@code byte[]} y el resto son arreglos de {@code int}. Por entrada: 12 bytes en
+ * {@code inicios}, {@code ids} y {@code hashes}, de 8 a 16 en {@code ranuras} (carga
+ * entre el 25 y el 50 %) y los bytes del código (~15 en UTF-8), es decir unos 35 a
+ * 45 bytes; 10 millones de códigos ocupan entre 350 y 450 MB, más la capacidad
+ * libre de cada arreglo. Al crecer (x1,5, con {@code Arrays.copyOf}) el arreglo
+ * viejo y el nuevo conviven hasta terminar la copia, así que el pico es mayor.
+ * El log de la precarga informa el total real ({@code bytesOcupados()}).
+ * <p>
+ * Se precarga en segundo plano al iniciar, {@link CodigoPaqueteIndiceListener}
+ * agrega los paquetes nuevos cuando su transacción confirma, y si un código no
+ * está (precarga en curso o paquete creado por otro sistema) se consulta la base
+ * de datos y se guarda el resultado. Los paquetes no se borran desde esta API,
+ * por eso el índice no elimina entradas.
+ */
+@Component
+public class CodigoPaqueteIndice implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CodigoPaqueteIndice.class);
+
+    private static final int FILAS_POR_LECTURA = 10_000;
+
+    private final PaqueteRepository paqueteRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Códigos en UTF-8 concatenados; la entrada e ocupa [inicios[e], inicios[e + 1])
+    private byte[] arena = new byte[64 * 1024];
+    private int arenaUsada;
+    private int[] inicios = new int[4096];
+    private int[] ids = new int[4096];
+    private int[] hashes = new int[4096];
+    private int entradas;
+    // Posición de la entrada + 1 en cada ranura; 0 = ranura libre. Carga máxima del 50 %
+    private int[] ranuras = new int[8192];
+
+    public CodigoPaqueteIndice(PaqueteRepository paqueteRepository,
+                               DataSource dataSource,
+                               PlatformTransactionManager transactionManager) {
+        this.paqueteRepository = paqueteRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FILAS_POR_LECTURA);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Thread.ofPlatform()
+                .name("precarga-codigos-paquete")
+                .daemon(true)
+                .start(this::precargar);
+    }
+
+    /**
+     * ID del paquete con ese código; si no está en memoria lo busca en la base de datos.
+     */
+    public OptionalInt resolver(String codigoPaquete) {
+        if (codigoPaquete == null) {
+            return OptionalInt.empty();
+        }
+        byte[] clave = codigoPaquete.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(clave);
+
+        lock.readLock().lock();
+        try {
+            int entrada = buscar(clave, hash);
+            if (entrada >= 0) {
+                return OptionalInt.of(ids[entrada]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return paqueteRepository.findIdByCodigoPaquete(codigoPaquete)
+                .map(id -> {
+                    guardar(clave, hash, id);
+                    return OptionalInt.of(id);
+                })
+                .orElseGet(OptionalInt::empty);
+    }
+
+    /**
+     * IDs de varios códigos a la vez. Los que no están en memoria se buscan con
+     * una sola consulta IN; los códigos inexistentes no aparecen en el resultado.
+     */
+    public Map<String, Integer> resolverTodos(Collection<String> codigosPaquete) {
+        Map<String, Integer> resultado = new HashMap<>(codigosPaquete.size() * 2);
+        List<String> faltantes = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (String codigo : codigosPaquete) {
+                if (codigo == null || resultado.containsKey(codigo)) {
+                    continue;
+                }
+                int entrada = buscar(codigo.getBytes(StandardCharsets.UTF_8));
+                if (entrada >= 0) {
+                    resultado.put(codigo, ids[entrada]);
+                } else {
+                    faltantes.add(codigo);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (!faltantes.isEmpty()) {
+            for (PaqueteIdCodigo paquete : paqueteRepository.findIdsPorCodigos(faltantes)) {
+                guardar(paquete.getCodigoPaquete(), paquete.getId());
+                resultado.put(paquete.getCodigoPaquete(), paquete.getId());
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Agrega un paquete recién insertado. Dentro de una transacción espera al
+     * commit para no publicar IDs que podrían revertirse.
+     */
+    public void registrar(String codigoPaquete, Integer idPaquete) {
+        if (codigoPaquete == null || idPaquete == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guardar(codigoPaquete, idPaquete);
+                }
+            });
+        } else {
+            guardar(codigoPaquete, idPaquete);
+        }
+    }
+
+    public int tamano() {
+        lock.readLock().lock();
+        try {
+            return entradas;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void precargar() {
+        long inicio = System.nanoTime();
+        try {
+            // Con autocommit desactivado el driver de Postgres respeta el fetch size
+            // y trae las filas por bloques en lugar de todo el resultado de una vez
+            transactionTemplate.executeWithoutResult(estado ->
+                    jdbcTemplate.query("SELECT id_paquete, codigo_paquete FROM paquetes WHERE codigo_paquete IS NOT NULL",
+                            (RowCallbackHandler) fila -> guardar(fila.getString(2), fila.getInt(1))));
+            lock.readLock().lock();
+            try {
+                logger.info("✅ Índice de códigos de paquete cargado: {} códigos en {} ms (~{} MB)",
+                        entradas, (System.nanoTime() - inicio) / 1_000_000, bytesOcupados() / (1024 * 1024));
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (RuntimeException e) {
+            // Sin precarga el índice sigue funcionando: cada código se resuelve en la base al primer uso
+            logger.warn("⚠️ No se pudo precargar el índice de códigos de paquete: {}", e.getMessage());
+        }
+    }
+
+    private void guardar(String codigoPaquete, int idPaquete) {
+        byte[] clave = codigoPaquete.getBytes(StandardCharsets.UTF_8);
+        guardar(clave, hash(clave), idPaquete);
+    }
+
+    private void guardar(byte[] clave, int hash, int idPaquete) {
+        lock.writeLock().lock();
+        try {
+            int existente = buscar(clave, hash);
+            if (existente >= 0) {
+                ids[existente] = idPaquete;
+                return;
+            }
+
+            if (entradas == ids.length) {
+                int capacidad = ids.length + (ids.length >> 1);
+                inicios = Arrays.copyOf(inicios, capacidad);
+                ids = Arrays.copyOf(ids, capacidad);
+                hashes = Arrays.copyOf(hashes, capacidad);
+            }
+            if (arena.length - arenaUsada < clave.length) {
+                long requerido = (long) arenaUsada + clave.length;
+                long capacidad = Math.max(requerido, (long) arena.length + (arena.length >> 1));
+                if (requerido > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("El índice de códigos de paquete superó 2 GB");
+                }
+                arena = Arrays.copyOf(arena, (int) Math.min(capacidad, Integer.MAX_VALUE - 8));
+            }
+
+            int entrada = entradas++;
+            System.arraycopy(clave, 0, arena, arenaUsada, clave.length);
+            inicios[entrada] = arenaUsada;
+            arenaUsada += clave.length;
+            ids[entrada] = idPaquete;
+            hashes[entrada] = hash;
+
+            if (entradas * 2 > ranuras.length) {
+                redimensionarRanuras();
+            } else {
+                ocuparRanura(entrada);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Requiere el lock de lectura o de escritura
+    private int buscar(byte[] clave) {
+        return buscar(clave, hash(clave));
+    }
+
+    // Requiere el lock de lectura o de escritura
+    private int buscar(byte[] clave, int hash) {
+        int mascara = ranuras.length - 1;
+        for (int i = hash & mascara; ; i = (i + 1) & mascara) {
+            int ranura = ranuras[i];
+            if (ranura == 0) {
+                return -1;
+            }
+            int entrada = ranura - 1;
+            if (hashes[entrada] == hash && mismaClave(entrada, clave)) {
+                return entrada;
+            }
+        }
+    }
+
+    private boolean mismaClave(int entrada, byte[] clave) {
+        int desde = inicios[entrada];
+        int hasta = entrada + 1 < entradas ? inicios[entrada + 1] : arenaUsada;
+        return Arrays.equals(arena, desde, hasta, clave, 0, clave.length);
+    }
+
+    private void ocuparRanura(int entrada) {
+        int mascara = ranuras.length - 1;
+        int i = hashes[entrada] & mascara;
+        while (ranuras[i] != 0) {
+            i = (i + 1) & mascara;
+        }
+        ranuras[i] = entrada + 1;
+    }
+
+    private void redimensionarRanuras() {
+        ranuras = new int[ranuras.length * 2];
+        for (int entrada = 0; entrada < entradas; entrada++) {
+            ocuparRanura(entrada);
+        }
+    }
+
+    private long bytesOcupados() {
+        return arena.length + 4L * (inicios.length + ids.length + hashes.length + ranuras.length);
+    }
+
+    // FNV-1a con mezcla final para repartir bien códigos con prefijos comunes ("PKG-2025-...")
+    private static int hash(byte[] clave) {
+        int h = 0x811C9DC5;
+        for (byte b : clave) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,29 @@
+package com.fabricaescuela.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import com.fabricaescuela.models.entity.Paquete;
+
+import jakarta.persistence.PostPersist;
+
+/**
+ * Mantiene {@link CodigoPaqueteIndice} al día con los paquetes que se insertan
+ * por JPA. Hibernate lo instancia a través del contenedor de Spring mientras se
+ * construye el EntityManagerFactory; el índice depende de los repositorios (y
+ * estos del EntityManagerFactory), por eso se obtiene recién al primer uso.
+ */
+@Component
+public class CodigoPaqueteIndiceListener {
+
+    private final ObjectProvider<CodigoPaqueteIndice> codigoPaqueteIndice;
+
+    public CodigoPaqueteIndiceListener(ObjectProvider<CodigoPaqueteIndice> codigoPaqueteIndice) {
+        this.codigoPaqueteIndice = codigoPaqueteIndice;
+    }
+
+    @PostPersist
+    public void paqueteInsertado(Paquete paquete) {
+        codigoPaqueteIndice.getObject().registrar(paquete.getCodigoPaquete(), paquete.getId());
+    }
+}
@@ -0,0 +1,272 @@
+package com.fabricaescuela.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Escritura diferida (write-behind) de ubicaciones individuales.
+ * <p>
+ * {@code POST /api/paquetes/{codigo}/ubicaciones} deja la ubicación en una cola
+ * acotada y responde 202; un único hilo la vacía en lotes de hasta
+ * {@code lote} filas o cuando pasa {@code espera-maxima} desde la primera
+ * ubicación pendiente, y cada lote es un commit con {@link HistorialUbicacionLoteWriter}.
+ * Con la cola llena se responde 503 en lugar de acumular memoria.
+ * <p>
+ * Como ya se respondió 202, un lote que falla no se descarta entero: las fallas
+ * transitorias (conexión, bloqueos, timeouts) se reintentan hasta {@code intentos}
+ * veces con espera creciente, y si una fila viola una restricción (por ejemplo,
+ * el paquete se borró después de resolverlo) el lote se divide en mitades hasta
+ * aislarla y solo se descartan las filas inválidas.
+ * <p>
+ * Al apagar deja de aceptar ubicaciones y guarda todo lo pendiente antes de que
+ * se cierre el pool de conexiones. Las ubicaciones encoladas se pierden si el
+ * proceso termina de forma abrupta: por eso es opcional
+ * ({@code inventario.ubicaciones.escritura-diferida.habilitada=true}).
+ */
+@Component
+@ConditionalOnProperty(name = "inventario.ubicaciones.escritura-diferida.habilitada", havingValue = "true")
+public class ColaEscrituraUbicaciones implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(ColaEscrituraUbicaciones.class);
+
+    // Se detiene después del servidor web (DEFAULT_PHASE - 2048): ya no llegan peticiones nuevas
+    private static final int FASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private final HistorialUbicacionLoteWriter loteWriter;
+    private final BlockingQueue<HistorialUbicacionLoteWriter.UbicacionResuelta> cola;
+    private final int tamanoLote;
+    private final long esperaMaximaNanos;
+    private final Duration esperaApagado;
+    private final int intentos;
+    private final long esperaReintentoMillis;
+
+    private final Counter rechazadas;
+    private final Counter descartadas;
+    private final DistributionSummary tamanosLote;
+    private final Timer escritura;
+
+    // encolar comprueba `aceptando` y encola bajo el bloqueo de lectura; stop lo apaga bajo
+    // el de escritura, así ninguna ubicación entra a la cola después del vaciado final
+    private final ReadWriteLock admision = new ReentrantReadWriteLock();
+    private volatile boolean aceptando;
+    private Thread escritor;
+
+    public ColaEscrituraUbicaciones(HistorialUbicacionLoteWriter loteWriter,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.capacidad:50000}") int capacidad,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.lote:1000}") int tamanoLote,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.espera-maxima:50ms}") Duration esperaMaxima,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.espera-apagado:30s}") Duration esperaApagado,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.intentos:5}") int intentos,
+                                    @Value("${inventario.ubicaciones.escritura-diferida.espera-reintento:200ms}") Duration esperaReintento) {
+        this.loteWriter = loteWriter;
+        this.cola = new ArrayBlockingQueue<>(capacidad);
+        this.tamanoLote = tamanoLote;
+        this.esperaMaximaNanos = esperaMaxima.toNanos();
+        this.esperaApagado = esperaApagado;
+        this.intentos = Math.max(1, intentos);
+        this.esperaReintentoMillis = esperaReintento.toMillis();
+
+        Gauge.builder("inventario.ubicaciones.cola.pendientes", cola, BlockingQueue::size)
+                .description("Ubicaciones en cola esperando escritura")
+                .register(meterRegistry);
+        Gauge.builder("inventario.ubicaciones.cola.capacidad", cola, c -> c.size() + c.remainingCapacity())
+                .register(meterRegistry);
+        this.rechazadas = Counter.builder("inventario.ubicaciones.cola.rechazadas")
+                .description("Ubicaciones rechazadas con 503 por cola llena")
+                .register(meterRegistry);
+        this.descartadas = Counter.builder("inventario.ubicaciones.cola.descartadas")
+                .description("Ubicaciones aceptadas que no se pudieron guardar")
+                .register(meterRegistry);
+        this.tamanosLote = DistributionSummary.builder("inventario.ubicaciones.cola.lote")
+                .description("Ubicaciones por commit")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.escritura = Timer.builder("inventario.ubicaciones.cola.escritura")
+                .description("Duración de cada commit de un lote")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * Encola una ubicación ya resuelta; lanza {@link ColaLlenaException} si no hay lugar.
+     */
+    public void encolar(HistorialUbicacionLoteWriter.UbicacionResuelta ubicacion) {
+        admision.readLock().lock();
+        try {
+            if (!aceptando) {
+                rechazadas.increment();
+                throw new ColaLlenaException("El servicio se está deteniendo, reintente en otro nodo");
+            }
+            if (!cola.offer(ubicacion)) {
+                rechazadas.increment();
+                throw new ColaLlenaException("Cola de ubicaciones llena, reintente en unos segundos");
+            }
+        } finally {
+            admision.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void start() {
+        aceptando = true;
+        escritor = Thread.ofPlatform()
+                .name("escritura-ubicaciones")
+                .start(this::escribirMientrasAcepte);
+    }
+
+    @Override
+    public void stop() {
+        // Espera a los encolar en curso: después de esto nada entra a la cola
+        admision.writeLock().lock();
+        try {
+            aceptando = false;
+        } finally {
+            admision.writeLock().unlock();
+        }
+        try {
+            escritor.join(esperaApagado.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (escritor.isAlive() || !cola.isEmpty()) {
+            logger.warn("⚠️ Apagado con {} ubicaciones sin guardar", cola.size());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return escritor != null && escritor.isAlive();
+    }
+
+    @Override
+    public int getPhase() {
+        return FASE;
+    }
+
+    private void escribirMientrasAcepte() {
+        List<HistorialUbicacionLoteWriter.UbicacionResuelta> lote = new ArrayList<>(tamanoLote);
+        try {
+            while (aceptando) {
+                if (llenarLote(lote)) {
+                    escribir(lote);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Vaciado final: ya no entran ubicaciones nuevas
+        while (cola.drainTo(lote, tamanoLote) > 0) {
+            escribir(lote);
+        }
+        logger.info("✅ Cola de ubicaciones vaciada");
+    }
+
+    // Espera la primera ubicación y luego junta más hasta completar el lote o vencer el plazo
+    private boolean llenarLote(List<HistorialUbicacionLoteWriter.UbicacionResuelta> lote) throws InterruptedException {
+        HistorialUbicacionLoteWriter.UbicacionResuelta primera = cola.poll(100, TimeUnit.MILLISECONDS);
+        if (primera == null) {
+            return false;
+        }
+        lote.add(primera);
+        long limite = System.nanoTime() + esperaMaximaNanos;
+        while (lote.size() < tamanoLote) {
+            if (cola.drainTo(lote, tamanoLote - lote.size()) > 0) {
+                continue;
+            }
+            long restante = limite - System.nanoTime();
+            if (restante <= 0) {
+                break;
+            }
+            HistorialUbicacionLoteWriter.UbicacionResuelta siguiente = cola.poll(restante, TimeUnit.NANOSECONDS);
+            if (siguiente == null) {
+                break;
+            }
+            lote.add(siguiente);
+        }
+        return true;
+    }
+
+    private void escribir(List<HistorialUbicacionLoteWriter.UbicacionResuelta> lote) {
+        tamanosLote.record(lote.size());
+        Timer.Sample muestra = Timer.start();
+        try {
+            guardar(lote);
+        } finally {
+            muestra.stop(escritura);
+            lote.clear();
+        }
+    }
+
+    // Cada llamada a loteWriter.escribir es un commit: una mitad guardada no se revierte si falla la otra
+    private void guardar(List<HistorialUbicacionLoteWriter.UbicacionResuelta> ubicaciones) {
+        for (int intento = 1; ; intento++) {
+            try {
+                loteWriter.escribir(ubicaciones);
+                return;
+            } catch (DataIntegrityViolationException e) {
+                if (ubicaciones.size() == 1) {
+                    descartar(ubicaciones, e);
+                    return;
+                }
+                int mitad = ubicaciones.size() / 2;
+                guardar(ubicaciones.subList(0, mitad));
+                guardar(ubicaciones.subList(mitad, ubicaciones.size()));
+                return;
+            } catch (TransientDataAccessException | RecoverableDataAccessException
+                     | DataAccessResourceFailureException e) {
+                if (intento >= intentos) {
+                    descartar(ubicaciones, e);
+                    return;
+                }
+                logger.warn("⚠️ Falla transitoria guardando {} ubicaciones (intento {} de {}): {}",
+                        ubicaciones.size(), intento, intentos, e.getMessage());
+                esperarAntesDeReintentar(intento);
+            } catch (RuntimeException e) {
+                descartar(ubicaciones, e);
+                return;
+            }
+        }
+    }
+
+    // Ya se respondió 202: solo queda registrar la pérdida
+    private void descartar(List<HistorialUbicacionLoteWriter.UbicacionResuelta> ubicaciones, RuntimeException e) {
+        descartadas.increment(ubicaciones.size());
+        if (ubicaciones.size() == 1) {
+            logger.error("❌ Ubicación descartada del paquete {}: {}", ubicaciones.get(0).idPaquete(), e.getMessage());
+        } else {
+            logger.error("❌ No se pudieron guardar {} ubicaciones: {}", ubicaciones.size(), e.getMessage());
+        }
+    }
+
+    private void esperarAntesDeReintentar(int intento) {
+        try {
+            Thread.sleep(esperaReintentoMillis << Math.min(intento - 1, 6));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.fabricaescuela.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * La cola de escritura diferida de ubicaciones está llena (o cerrándose). El
+ * cliente debe reintentar más tarde; {@code Retry-After} indica cuándo.
+ */
+public class ColaLlenaException extends ResponseStatusException {
+
+    private static final String REINTENTAR_EN_SEGUNDOS = "1";
+
+    public ColaLlenaException(String motivo) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, motivo);
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, REINTENTAR_EN_SEGUNDOS);
+        return headers;
+    }
+}
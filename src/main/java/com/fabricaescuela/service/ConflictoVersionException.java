@@ -0,0 +1,41 @@
+package com.fabricaescuela.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fabricaescuela.models.dto.VersionPaquete;
+
+/**
+ * El paquete cambió en otra transacción durante todos los reintentos de una
+ * actualización. Lleva la versión vigente (también como ETag) para que el
+ * cliente vuelva a consultar el paquete y decida si repite la operación.
+ */
+public class ConflictoVersionException extends ResponseStatusException {
+
+    private final String codigoPaquete;
+    private final transient VersionPaquete versionActual;
+
+    public ConflictoVersionException(String codigoPaquete, VersionPaquete versionActual) {
+        super(HttpStatus.CONFLICT, "El paquete " + codigoPaquete + " fue modificado por otra operación");
+        this.codigoPaquete = codigoPaquete;
+        this.versionActual = versionActual;
+    }
+
+    public String getCodigoPaquete() {
+        return codigoPaquete;
+    }
+
+    public Long getVersionActual() {
+        return versionActual != null ? versionActual.version() : null;
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        if (versionActual != null) {
+            headers.setETag(versionActual.etag());
+        }
+        return headers;
+    }
+}
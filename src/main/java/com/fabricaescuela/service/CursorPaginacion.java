@@ -0,0 +1,75 @@
+package com.fabricaescuela.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fabricaescuela.models.dto.PaginaCursor;
+
+/**
+ * Utilidades para la paginación por cursor (keyset) sobre claves enteras.
+ * El cursor es el último ID devuelto codificado en Base64 URL; las consultas
+ * filtran con {@code id > cursor} en lugar de OFFSET, así que el costo de
+ * cualquier página es el mismo que el de la primera.
+ */
+public final class CursorPaginacion {
+
+    public static final int LIMITE_POR_DEFECTO = 50;
+    public static final int LIMITE_MAXIMO = 500;
+
+    private CursorPaginacion() {
+    }
+
+    /**
+     * Devuelve el ID a partir del cual continuar, o 0 si no hay cursor.
+     */
+    public static int decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            String valor = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int ultimoId = Integer.parseInt(valor);
+            if (ultimoId < 0) {
+                throw new NumberFormatException(valor);
+            }
+            return ultimoId;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cursor de paginación inválido");
+        }
+    }
+
+    public static String codificar(int ultimoId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Integer.toString(ultimoId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Ajusta el límite solicitado al rango permitido.
+     */
+    public static int normalizarLimite(Integer limite) {
+        if (limite == null) {
+            return LIMITE_POR_DEFECTO;
+        }
+        if (limite < 1) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "El límite debe ser mayor que cero");
+        }
+        return Math.min(limite, LIMITE_MAXIMO);
+    }
+
+    /**
+     * Arma la página a partir de filas consultadas con {@code limite + 1}:
+     * la fila sobrante solo indica que existe una página siguiente.
+     */
+    public static <E, T> PaginaCursor<T> construir(List<E> filas, int limite,
+                                                   Function<E, Integer> id, Function<E, T> mapper) {
+        boolean hayMas = filas.size() > limite;
+        List<E> pagina = hayMas ? filas.subList(0, limite) : filas;
+        String next = hayMas ? codificar(id.apply(pagina.get(pagina.size() - 1))) : null;
+        return new PaginaCursor<>(pagina.stream().map(mapper).toList(), next, limite);
+    }
+}
@@ -0,0 +1,175 @@
+package com.fabricaescuela.service;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fabricaescuela.models.entity.CategoriaEstado;
+import com.fabricaescuela.models.entity.Estado;
+import com.fabricaescuela.repository.EstadoRepository;
+
+/**
+ * Catálogo en memoria de la tabla {@code estados}.
+ * <p>
+ * Se carga al iniciar la aplicación y se indexa por ID y por nombre normalizado
+ * (sin tildes, en minúsculas y sin espacios, guiones ni guiones bajos), de modo
+ * que "En Tránsito", "en transito" y "EN_TRANSITO" resuelven al mismo estado sin
+ * ir a la base de datos. {@link EstadoServiceImpl} lo recarga en cada alta,
+ * edición o borrado; si un nombre no se encuentra se recarga una vez (como mucho
+ * cada {@value #SEGUNDOS_ENTRE_RECARGAS_POR_FALLO} s) por si otro nodo creó el estado.
+ */
+@Component
+public class EstadoCatalogo implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstadoCatalogo.class);
+
+    private static final long SEGUNDOS_ENTRE_RECARGAS_POR_FALLO = 30;
+
+    private final EstadoRepository estadoRepository;
+
+    private volatile Indice indice = new Indice(List.of(), Map.of(), Map.of(), Map.of(), Map.of());
+    private volatile long ultimaRecargaNanos;
+
+    public EstadoCatalogo(EstadoRepository estadoRepository) {
+        this.estadoRepository = estadoRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        recargarAhora();
+    }
+
+    public Optional<Estado> buscarPorId(Integer id) {
+        return id == null ? Optional.empty() : Optional.ofNullable(indice.porId().get(id));
+    }
+
+    public Optional<Estado> buscarPorNombre(String nombre) {
+        String clave = CategoriaEstado.normalizar(nombre);
+        if (clave.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Estado estado = indice.porNombre().get(clave);
+        if (estado == null && puedeRecargarPorFallo()) {
+            recargarAhora();
+            estado = indice.porNombre().get(clave);
+        }
+        return Optional.ofNullable(estado);
+    }
+
+    /**
+     * IDs de todos los estados cuyo nombre normalizado coincide con {@code nombre}
+     * (normalmente uno; varios si hay nombres repetidos), para filtrar por
+     * {@code idEstadoActual}. Vacío si el estado no existe.
+     */
+    public Set<Integer> idsPorNombre(String nombre) {
+        String clave = CategoriaEstado.normalizar(nombre);
+        if (clave.isEmpty()) {
+            return Set.of();
+        }
+
+        Set<Integer> ids = indice.idsPorNombre().get(clave);
+        if (ids == null && puedeRecargarPorFallo()) {
+            recargarAhora();
+            ids = indice.idsPorNombre().get(clave);
+        }
+        return ids != null ? ids : Set.of();
+    }
+
+    /**
+     * Categoría del estado con el ID dado, u {@link CategoriaEstado#OTRO} si no existe.
+     */
+    public CategoriaEstado categoriaDe(Integer idEstado) {
+        Estado estado = idEstado == null ? null : indice.porId().get(idEstado);
+        return estado != null ? estado.getCategoria() : CategoriaEstado.OTRO;
+    }
+
+    /**
+     * IDs de los estados de una categoría, para filtrar en base de datos por
+     * {@code idEstadoActual} en lugar de comparar nombres.
+     */
+    public Set<Integer> idsPorCategoria(CategoriaEstado categoria) {
+        return indice.idsPorCategoria().getOrDefault(categoria, Set.of());
+    }
+
+    public List<Estado> todos() {
+        return indice.todos();
+    }
+
+    public String nombresDisponibles() {
+        return indice.todos().stream()
+                .map(Estado::getNombreEstado)
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Recarga el catálogo. Dentro de una transacción espera al commit para no
+     * publicar estados que todavía podrían revertirse.
+     */
+    public void recargar() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    recargarAhora();
+                }
+            });
+        } else {
+            recargarAhora();
+        }
+    }
+
+    private void recargarAhora() {
+        List<Estado> estados = estadoRepository.findAll().stream()
+                .sorted(Comparator.comparing(Estado::getId))
+                .toList();
+
+        Map<Integer, Estado> porId = new LinkedHashMap<>();
+        Map<String, Estado> porNombre = new LinkedHashMap<>();
+        Map<String, Set<Integer>> idsPorNombre = new HashMap<>();
+        Map<CategoriaEstado, Set<Integer>> idsPorCategoria = new EnumMap<>(CategoriaEstado.class);
+        for (Estado estado : estados) {
+            porId.put(estado.getId(), estado);
+            idsPorCategoria.computeIfAbsent(estado.getCategoria(), c -> new HashSet<>()).add(estado.getId());
+            String clave = CategoriaEstado.normalizar(estado.getNombreEstado());
+            if (!clave.isEmpty()) {
+                idsPorNombre.computeIfAbsent(clave, c -> new HashSet<>()).add(estado.getId());
+            }
+            if (!clave.isEmpty() && porNombre.putIfAbsent(clave, estado) != null) {
+                logger.warn("⚠️ Los estados {} y {} tienen el mismo nombre normalizado '{}'; se usa el de menor ID",
+                        porNombre.get(clave).getId(), estado.getId(), clave);
+            }
+        }
+
+        idsPorCategoria.replaceAll((categoria, ids) -> Set.copyOf(ids));
+        idsPorNombre.replaceAll((clave, ids) -> Set.copyOf(ids));
+        indice = new Indice(estados, Map.copyOf(porId), Map.copyOf(porNombre), Map.copyOf(idsPorNombre),
+                Map.copyOf(idsPorCategoria));
+        ultimaRecargaNanos = System.nanoTime();
+        logger.debug("Catálogo de estados cargado: {} estados", estados.size());
+    }
+
+    private boolean puedeRecargarPorFallo() {
+        return System.nanoTime() - ultimaRecargaNanos > TimeUnit.SECONDS.toNanos(SEGUNDOS_ENTRE_RECARGAS_POR_FALLO);
+    }
+
+    private record Indice(List<Estado> todos, Map<Integer, Estado> porId, Map<String, Estado> porNombre,
+                          Map<String, Set<Integer>> idsPorNombre,
+                          Map<CategoriaEstado, Set<Integer>> idsPorCategoria) {
+    }
+}
@@ -5,16 +5,25 @@ import java.util.Optional;
 
 import org.springframework.stereotype.Service;
 
+import com.fabricaescuela.config.MetricasConfig;
 import com.fabricaescuela.models.entity.Estado;
 import com.fabricaescuela.repository.EstadoRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed(MetricasConfig.TIEMPO_SERVICIOS)
 public class EstadoServiceImpl implements EstadoService {
 
     private final EstadoRepository estadoRepository;
+    private final EstadoCatalogo estadoCatalogo;
+    private final PaqueteCache paqueteCache;
 
-    public EstadoServiceImpl(EstadoRepository estadoRepository) {
+    public EstadoServiceImpl(EstadoRepository estadoRepository, EstadoCatalogo estadoCatalogo,
+                             PaqueteCache paqueteCache) {
         this.estadoRepository = estadoRepository;
+        this.estadoCatalogo = estadoCatalogo;
+        this.paqueteCache = paqueteCache;
     }
 
     @Override
@@ -29,12 +38,17 @@ public class EstadoServiceImpl implements EstadoService {
 
     @Override
     public Estado save(Estado estado) {
-        return estadoRepository.save(estado);
+        Estado guardado = estadoRepository.save(estado);
+        estadoCatalogo.recargar();
+        paqueteCache.invalidarTodo();
+        return guardado;
     }
 
     @Override
     public void deleteById(Integer id) {
         estadoRepository.deleteById(id);
+        estadoCatalogo.recargar();
+        paqueteCache.invalidarTodo();
     }
 }
 
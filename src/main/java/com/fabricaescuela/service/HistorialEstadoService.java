@@ -1,13 +1,17 @@
 package com.fabricaescuela.service;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import com.fabricaescuela.models.dto.PaginaCursor;
+import com.fabricaescuela.models.entity.Estado;
 import com.fabricaescuela.models.entity.HistorialEstado;
 
 public interface HistorialEstadoService {
 
-    List<HistorialEstado> findAll();
+    PaginaCursor<HistorialEstado> findPagina(String cursor, Integer limite);
 
     Optional<HistorialEstado> findById(Integer id);
 
@@ -16,4 +20,11 @@ public interface HistorialEstadoService {
     HistorialEstado save(HistorialEstado historialEstado);
 
     void deleteById(Integer id);
+
+    /**
+     * Registra el mismo estado para varios paquetes con INSERTs en lotes JDBC y
+     * actualiza su estado actual en una sola sentencia, salvo en los paquetes con
+     * historial de fecha posterior. Devuelve las filas insertadas.
+     */
+    int registrarLote(Collection<Integer> idsPaquete, Estado estado, LocalDate fecha);
 }
@@ -1,25 +1,67 @@
 package com.fabricaescuela.service;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
 
+import com.fabricaescuela.config.MetricasConfig;
+import com.fabricaescuela.models.dto.PaginaCursor;
+import com.fabricaescuela.models.entity.Estado;
 import com.fabricaescuela.models.entity.HistorialEstado;
+import com.fabricaescuela.models.entity.Paquete;
 import com.fabricaescuela.repository.HistorialEstadoRepository;
+import com.fabricaescuela.repository.PaqueteRepository;
 
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * El historial es la fuente de verdad del estado de un paquete: toda escritura
+ * (alta, edición o borrado) recalcula {@code Paquete.idEstadoActual} dentro de
+ * la misma transacción, de modo que las lecturas solo consultan esa columna,
+ * e invalida la respuesta cacheada del paquete cuando la transacción confirma.
+ */
 @Service
+@Timed(MetricasConfig.TIEMPO_SERVICIOS)
 public class HistorialEstadoServiceImpl implements HistorialEstadoService {
 
     private final HistorialEstadoRepository historialEstadoRepository;
+    private final PaqueteRepository paqueteRepository;
+    private final PaqueteCache paqueteCache;
+    private final EntityManager entityManager;
+    private final int tamanoLote;
 
-    public HistorialEstadoServiceImpl(HistorialEstadoRepository historialEstadoRepository) {
+    public HistorialEstadoServiceImpl(HistorialEstadoRepository historialEstadoRepository,
+                                      PaqueteRepository paqueteRepository,
+                                      PaqueteCache paqueteCache,
+                                      EntityManager entityManager,
+                                      @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int tamanoLote) {
         this.historialEstadoRepository = historialEstadoRepository;
+        this.paqueteRepository = paqueteRepository;
+        this.paqueteCache = paqueteCache;
+        this.entityManager = entityManager;
+        this.tamanoLote = tamanoLote;
     }
 
     @Override
-    public List<HistorialEstado> findAll() {
-        return historialEstadoRepository.findAll();
+    @Transactional(readOnly = true)
+    public PaginaCursor<HistorialEstado> findPagina(String cursor, Integer limite) {
+        int despuesDe = CursorPaginacion.decodificar(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        List<HistorialEstado> filas = historialEstadoRepository.findByIdGreaterThanOrderByIdAsc(
+                despuesDe, Limit.of(tamano + 1));
+        return CursorPaginacion.construir(filas, tamano, HistorialEstado::getId, Function.identity());
     }
 
     @Override
@@ -33,12 +75,79 @@ public class HistorialEstadoServiceImpl implements HistorialEstadoService {
     }
 
     @Override
+    @Transactional
     public HistorialEstado save(HistorialEstado historialEstado) {
-        return historialEstadoRepository.save(historialEstado);
+        // Si se edita un historial y cambia de paquete, el paquete anterior también debe recalcularse
+        Integer idPaqueteAnterior = historialEstado.getId() != null
+                ? historialEstadoRepository.findIdPaqueteById(historialEstado.getId()).orElse(null)
+                : null;
+
+        HistorialEstado guardado = historialEstadoRepository.save(historialEstado);
+
+        Integer idPaquete = guardado.getIdPaquete() != null ? guardado.getIdPaquete().getId() : null;
+        sincronizarEstadoActual(idPaquete);
+        if (idPaqueteAnterior != null && !idPaqueteAnterior.equals(idPaquete)) {
+            sincronizarEstadoActual(idPaqueteAnterior);
+        }
+        return guardado;
     }
 
     @Override
+    @Transactional
     public void deleteById(Integer id) {
+        Integer idPaquete = historialEstadoRepository.findIdPaqueteById(id).orElse(null);
         historialEstadoRepository.deleteById(id);
+        sincronizarEstadoActual(idPaquete);
+    }
+
+    @Override
+    @Transactional
+    public int registrarLote(Collection<Integer> idsPaquete, Estado estado, LocalDate fecha) {
+        int insertados = 0;
+        for (Integer idPaquete : idsPaquete) {
+            HistorialEstado historial = new HistorialEstado();
+            historial.setIdPaquete(paqueteRepository.getReferenceById(idPaquete));
+            historial.setIdEstado(estado);
+            historial.setFechaHora(fecha);
+            entityManager.persist(historial);
+            // Cada flush envía un lote JDBC; clear evita que el contexto crezca con miles de filas
+            if (++insertados % tamanoLote == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        // Los recién insertados son los últimos de su día (mayor orden de registro), pero un paquete
+        // puede tener historial con fecha posterior: ese conserva su estado y solo cambia de versión
+        Instant ahora = Instant.now();
+        paqueteRepository.actualizarEstadoActual(idsPaquete, estado, fecha, ahora);
+        paqueteRepository.marcarModificadosConHistorialPosterior(idsPaquete, fecha, ahora);
+        return insertados;
+    }
+
+    private void sincronizarEstadoActual(Integer idPaquete) {
+        if (idPaquete == null) {
+            return;
+        }
+
+        // find no vuelve a consultar el paquete si esta transacción ya lo cargó
+        Paquete paquete = entityManager.find(Paquete.class, idPaquete);
+        if (paquete == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado");
+        }
+        // La consulta hace flush del historial pendiente antes de buscar el más reciente
+        Estado ultimoEstado = historialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDescOrdenRegistroDesc(idPaquete)
+                .map(HistorialEstado::getIdEstado)
+                .orElse(null);
+
+        // Después de la consulta, para que su flush no envíe un UPDATE aparte: el único UPDATE
+        // del paquete incrementa la versión una vez y comprueba la leída, así que si otra
+        // transacción cambia el historial del mismo paquete a la vez, solo una confirma y la
+        // otra falla con bloqueo optimista
+        paquete.setIdEstadoActual(ultimoEstado);
+        paquete.registrarCambio();
+        paqueteCache.invalidar(paquete.getCodigoPaquete());
     }
 }
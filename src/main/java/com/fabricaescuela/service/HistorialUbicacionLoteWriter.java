@@ -0,0 +1,66 @@
+package com.fabricaescuela.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fabricaescuela.repository.PaqueteRepository;
+
+/**
+ * Inserta ubicaciones ya resueltas a ID de paquete sin pasar por el contexto de
+ * persistencia: un lote JDBC que el driver reescribe como INSERT multi-fila
+ * ({@code reWriteBatchedInserts}) y un único UPDATE que incrementa la versión de
+ * los paquetes afectados para invalidar sus ETag.
+ */
+@Component
+public class HistorialUbicacionLoteWriter {
+
+    private static final String INSERTAR_UBICACION =
+            "INSERT INTO historial_ubicaciones (id_paquete, ubicacion, fecha_hora) VALUES (?, ?, ?)";
+
+    public record UbicacionResuelta(int idPaquete, String ubicacion, Instant fechaHora) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PaqueteRepository paqueteRepository;
+
+    public HistorialUbicacionLoteWriter(JdbcTemplate jdbcTemplate, PaqueteRepository paqueteRepository) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.paqueteRepository = paqueteRepository;
+    }
+
+    @Transactional
+    public int escribir(List<UbicacionResuelta> ubicaciones) {
+        if (ubicaciones.isEmpty()) {
+            return 0;
+        }
+        jdbcTemplate.batchUpdate(INSERTAR_UBICACION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                UbicacionResuelta ubicacion = ubicaciones.get(i);
+                ps.setInt(1, ubicacion.idPaquete());
+                ps.setString(2, ubicacion.ubicacion());
+                ps.setTimestamp(3, Timestamp.from(ubicacion.fechaHora()));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return ubicaciones.size();
+            }
+        });
+
+        Set<Integer> idsPaquete = new LinkedHashSet<>();
+        ubicaciones.forEach(ubicacion -> idsPaquete.add(ubicacion.idPaquete()));
+        paqueteRepository.marcarModificados(idsPaquete, Instant.now());
+        return ubicaciones.size();
+    }
+}
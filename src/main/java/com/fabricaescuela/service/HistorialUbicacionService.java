@@ -2,15 +2,36 @@ package com.fabricaescuela.service;
 
 import com.fabricaescuela.models.dto.HistorialUbicacionRequest;
 import com.fabricaescuela.models.dto.HistorialUbicacionResponse;
+import com.fabricaescuela.models.dto.IngestaUbicacionesResponse;
+import com.fabricaescuela.models.dto.VersionPaquete;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Optional;
 
 public interface HistorialUbicacionService {
 
+    /**
+     * Registra una ubicación. Con escritura diferida habilitada solo la encola
+     * (la respuesta no trae ID) y lanza {@link ColaLlenaException} si la cola está llena.
+     */
     HistorialUbicacionResponse registrarUbicacion(String codigoPaquete, HistorialUbicacionRequest request);
 
     List<HistorialUbicacionResponse> consultarUbicacionesPorCodigo(String codigoPaquete);
 
     Optional<HistorialUbicacionResponse> obtenerUltimaUbicacion(String codigoPaquete);
+
+    /**
+     * Versión del paquete solo si tiene alguna ubicación registrada, para validar
+     * la consulta de la última ubicación sin cargarla
+     */
+    Optional<VersionPaquete> consultarVersionUltimaUbicacion(String codigoPaquete);
+
+    /**
+     * Carga masiva de ubicaciones desde un arreglo JSON o NDJSON. Se lee en streaming
+     * y se guarda por lotes (cada lote en su propia transacción); los registros
+     * inválidos o de paquetes inexistentes se rechazan sin detener la carga.
+     */
+    IngestaUbicacionesResponse registrarLote(InputStream cuerpo, boolean ndjson) throws IOException;
 }
@@ -1,74 +1,269 @@
 package com.fabricaescuela.service;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fabricaescuela.config.MetricasConfig;
 import com.fabricaescuela.models.dto.HistorialUbicacionRequest;
 import com.fabricaescuela.models.dto.HistorialUbicacionResponse;
+import com.fabricaescuela.models.dto.IngestaUbicacionesResponse;
+import com.fabricaescuela.models.dto.UbicacionPing;
+import com.fabricaescuela.models.dto.VersionPaquete;
 import com.fabricaescuela.models.entity.HistorialUbicacion;
-import com.fabricaescuela.models.entity.Paquete;
 import com.fabricaescuela.repository.HistorialUbicacionRepository;
 import com.fabricaescuela.repository.PaqueteRepository;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 
 @Service
+@Timed(MetricasConfig.TIEMPO_SERVICIOS)
 public class HistorialUbicacionServiceImpl implements HistorialUbicacionService {
 
+    // Pings por transacción en la carga masiva
+    private static final int PINGS_POR_LOTE = 5_000;
+
     private final HistorialUbicacionRepository historialUbicacionRepository;
     private final PaqueteRepository paqueteRepository;
+    private final CodigoPaqueteIndice codigoPaqueteIndice;
+    private final HistorialUbicacionLoteWriter loteWriter;
+    private final ObjectReader pingReader;
+    private final Validator validator;
+    private final ColaEscrituraUbicaciones colaEscritura;
 
     public HistorialUbicacionServiceImpl(HistorialUbicacionRepository historialUbicacionRepository,
-                                         PaqueteRepository paqueteRepository) {
+                                         PaqueteRepository paqueteRepository,
+                                         CodigoPaqueteIndice codigoPaqueteIndice,
+                                         HistorialUbicacionLoteWriter loteWriter,
+                                         ObjectMapper objectMapper,
+                                         Validator validator,
+                                         ObjectProvider<ColaEscrituraUbicaciones> colaEscritura) {
         this.historialUbicacionRepository = historialUbicacionRepository;
         this.paqueteRepository = paqueteRepository;
+        this.codigoPaqueteIndice = codigoPaqueteIndice;
+        this.loteWriter = loteWriter;
+        this.pingReader = objectMapper.readerFor(UbicacionPing.class);
+        this.validator = validator;
+        this.colaEscritura = colaEscritura.getIfAvailable();
     }
 
     @Override
     @Transactional
     public HistorialUbicacionResponse registrarUbicacion(String codigoPaquete, HistorialUbicacionRequest request) {
-        Paquete paquete = paqueteRepository.findByCodigoPaquete(codigoPaquete)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado"));
+        int idPaquete = resolverIdPaquete(codigoPaquete);
 
+        if (colaEscritura != null) {
+            // Escritura diferida: se guarda en el próximo lote; todavía no hay ID
+            Instant ahora = Instant.now();
+            colaEscritura.encolar(new HistorialUbicacionLoteWriter.UbicacionResuelta(idPaquete, request.ubicacion(), ahora));
+            return HistorialUbicacionResponse.builder()
+                    .codigoPaquete(codigoPaquete)
+                    .ubicacion(request.ubicacion())
+                    .fechaRegistro(ahora)
+                    .build();
+        }
+
+        // Referencia sin SELECT: solo se necesita la FK para el INSERT
         HistorialUbicacion historial = new HistorialUbicacion();
-        historial.setIdPaquete(paquete);
+        historial.setIdPaquete(paqueteRepository.getReferenceById(idPaquete));
         historial.setUbicacion(request.ubicacion());
         historial.setFechaHora(Instant.now());
 
         HistorialUbicacion guardado = historialUbicacionRepository.save(historial);
-        return mapToResponse(paquete, guardado);
+        paqueteRepository.marcarModificado(idPaquete, guardado.getFechaHora());
+        return mapToResponse(codigoPaquete, guardado);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<HistorialUbicacionResponse> consultarUbicacionesPorCodigo(String codigoPaquete) {
-        Paquete paquete = paqueteRepository.findByCodigoPaquete(codigoPaquete)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado"));
+        int idPaquete = resolverIdPaquete(codigoPaquete);
 
-        return historialUbicacionRepository.findByIdPaquete_IdOrderByFechaHoraDesc(paquete.getId()).stream()
-                .map(historial -> mapToResponse(paquete, historial))
+        return historialUbicacionRepository.findByIdPaquete_IdOrderByFechaHoraDesc(idPaquete).stream()
+                .map(historial -> mapToResponse(codigoPaquete, historial))
                 .collect(Collectors.toList());
     }
 
     @Override
     @Transactional(readOnly = true)
     public Optional<HistorialUbicacionResponse> obtenerUltimaUbicacion(String codigoPaquete) {
-        Paquete paquete = paqueteRepository.findByCodigoPaquete(codigoPaquete)
-                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado"));
+        int idPaquete = resolverIdPaquete(codigoPaquete);
+
+        return historialUbicacionRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc(idPaquete)
+                .map(historial -> mapToResponse(codigoPaquete, historial));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<VersionPaquete> consultarVersionUltimaUbicacion(String codigoPaquete) {
+        return paqueteRepository.findVersionConUbicacionesById(resolverIdPaquete(codigoPaquete));
+    }
+
+    @Override
+    public IngestaUbicacionesResponse registrarLote(InputStream cuerpo, boolean ndjson) throws IOException {
+        Ingesta ingesta = new Ingesta(Instant.now());
+        if (ndjson) {
+            leerNdjson(cuerpo, ingesta);
+        } else {
+            leerArreglo(cuerpo, ingesta);
+        }
+        ingesta.guardarPendientes();
+        return ingesta.resultado();
+    }
 
-        return historialUbicacionRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc(paquete.getId())
-                .map(historial -> mapToResponse(paquete, historial));
+    // Cada línea es independiente: una línea mal formada no impide leer las siguientes
+    private void leerNdjson(InputStream cuerpo, Ingesta ingesta) throws IOException {
+        BufferedReader lector = new BufferedReader(new InputStreamReader(cuerpo, StandardCharsets.UTF_8), 64 * 1024);
+        String linea;
+        int posicion = 0;
+        while ((linea = lector.readLine()) != null) {
+            posicion++;
+            if (linea.isBlank()) {
+                continue;
+            }
+            try {
+                ingesta.agregar(posicion, pingReader.readValue(linea));
+            } catch (JsonProcessingException e) {
+                ingesta.rechazarIlegible(posicion, "JSON inválido: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void leerArreglo(InputStream cuerpo, Ingesta ingesta) throws IOException {
+        int posicion = 0;
+        try (MappingIterator<UbicacionPing> pings = pingReader.readValues(cuerpo)) {
+            while (true) {
+                posicion++;
+                try {
+                    if (!pings.hasNextValue()) {
+                        break;
+                    }
+                    ingesta.agregar(posicion, pings.nextValue());
+                } catch (JsonMappingException e) {
+                    // Tipo o formato incorrecto en un elemento: el iterador salta al siguiente
+                    ingesta.rechazarIlegible(posicion, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+        } catch (JsonParseException e) {
+            // Sintaxis rota: no se puede ubicar el siguiente elemento, se conserva lo ya leído
+            ingesta.rechazarIlegible(posicion, "JSON mal formado, se detuvo la lectura: " + e.getOriginalMessage());
+        }
+    }
+
+    /**
+     * Estado de una carga masiva: acumula pings válidos y los guarda en lotes de
+     * {@link #PINGS_POR_LOTE} con una sola resolución de códigos por lote.
+     */
+    private final class Ingesta {
+
+        private final Instant recepcion;
+        private final List<UbicacionPing> pendientes = new ArrayList<>(PINGS_POR_LOTE);
+        private final int[] posiciones = new int[PINGS_POR_LOTE];
+        private final List<IngestaUbicacionesResponse.Rechazo> rechazos = new ArrayList<>();
+        private int recibidas;
+        private int registradas;
+        private int rechazadas;
+
+        private Ingesta(Instant recepcion) {
+            this.recepcion = recepcion;
+        }
+
+        void agregar(int posicion, UbicacionPing ping) {
+            recibidas++;
+            if (ping == null) {
+                rechazar(posicion, null, "Registro vacío");
+                return;
+            }
+            Set<ConstraintViolation<UbicacionPing>> violaciones = validator.validate(ping);
+            if (!violaciones.isEmpty()) {
+                rechazar(posicion, ping.codigoPaquete(), violaciones.iterator().next().getMessage());
+                return;
+            }
+            posiciones[pendientes.size()] = posicion;
+            pendientes.add(ping);
+            if (pendientes.size() == PINGS_POR_LOTE) {
+                guardarPendientes();
+            }
+        }
+
+        // Registro que ni siquiera se pudo convertir en UbicacionPing
+        void rechazarIlegible(int posicion, String motivo) {
+            recibidas++;
+            rechazar(posicion, null, motivo);
+        }
+
+        void rechazar(int posicion, String codigoPaquete, String motivo) {
+            rechazadas++;
+            if (rechazos.size() < IngestaUbicacionesResponse.MAXIMO_RECHAZOS_DETALLADOS) {
+                rechazos.add(new IngestaUbicacionesResponse.Rechazo(posicion, codigoPaquete, motivo));
+            }
+        }
+
+        void guardarPendientes() {
+            if (pendientes.isEmpty()) {
+                return;
+            }
+            Set<String> codigos = new HashSet<>();
+            pendientes.forEach(ping -> codigos.add(ping.codigoPaquete()));
+            Map<String, Integer> ids = codigoPaqueteIndice.resolverTodos(codigos);
+
+            List<HistorialUbicacionLoteWriter.UbicacionResuelta> resueltas = new ArrayList<>(pendientes.size());
+            for (int i = 0; i < pendientes.size(); i++) {
+                UbicacionPing ping = pendientes.get(i);
+                Integer idPaquete = ids.get(ping.codigoPaquete());
+                if (idPaquete == null) {
+                    rechazar(posiciones[i], ping.codigoPaquete(), "Paquete no encontrado");
+                    continue;
+                }
+                Instant fechaHora = ping.timestamp() != null ? ping.timestamp() : recepcion;
+                resueltas.add(new HistorialUbicacionLoteWriter.UbicacionResuelta(idPaquete, ping.ubicacion(), fechaHora));
+            }
+            pendientes.clear();
+            registradas += loteWriter.escribir(resueltas);
+        }
+
+        IngestaUbicacionesResponse resultado() {
+            // Los paquetes inexistentes se detectan al guardar cada lote, después de los errores de lectura
+            rechazos.sort(Comparator.comparingInt(IngestaUbicacionesResponse.Rechazo::posicion));
+            return new IngestaUbicacionesResponse(recibidas, registradas, rechazadas, rechazos);
+        }
+    }
+
+    private int resolverIdPaquete(String codigoPaquete) {
+        return codigoPaqueteIndice.resolver(codigoPaquete)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado"));
     }
 
-    private HistorialUbicacionResponse mapToResponse(Paquete paquete, HistorialUbicacion historial) {
+    private HistorialUbicacionResponse mapToResponse(String codigoPaquete, HistorialUbicacion historial) {
         return HistorialUbicacionResponse.builder()
                 .id(historial.getId())
-                .codigoPaquete(paquete.getCodigoPaquete())
+                .codigoPaquete(codigoPaquete)
                 .ubicacion(historial.getUbicacion())
                 .fechaRegistro(historial.getFechaHora())
                 .build();
@@ -3,6 +3,7 @@ package com.fabricaescuela.service;
 import java.util.List;
 import java.util.Optional;
 
+import com.fabricaescuela.models.dto.PaginaCursor;
 import com.fabricaescuela.models.entity.Novedad;
 
 public interface NovedadService {
@@ -10,7 +11,7 @@ public interface NovedadService {
     Novedad registrarNovedad(Novedad novedad);
     
     // Consultar novedades
-    List<Novedad> obtenerTodasLasNovedades();
+    PaginaCursor<Novedad> obtenerTodasLasNovedades(String cursor, Integer limite);
     Optional<Novedad> obtenerNovedadPorId(Integer id);
     List<Novedad> findByIdPaqueteId(Integer idPaquete);
     
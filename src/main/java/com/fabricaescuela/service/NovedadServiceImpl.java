@@ -3,13 +3,20 @@ package com.fabricaescuela.service;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 
+import com.fabricaescuela.config.MetricasConfig;
+import com.fabricaescuela.models.dto.PaginaCursor;
 import com.fabricaescuela.models.entity.Novedad;
 import com.fabricaescuela.repository.NovedadRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
+@Timed(MetricasConfig.TIEMPO_SERVICIOS)
 public class NovedadServiceImpl implements NovedadService {
     private final NovedadRepository novedadRepository;
 
@@ -27,8 +34,11 @@ public class NovedadServiceImpl implements NovedadService {
     }
 
     @Override
-    public List<Novedad> obtenerTodasLasNovedades() {
-        return novedadRepository.findAll();
+    public PaginaCursor<Novedad> obtenerTodasLasNovedades(String cursor, Integer limite) {
+        int despuesDe = CursorPaginacion.decodificar(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        List<Novedad> filas = novedadRepository.findByIdGreaterThanOrderByIdAsc(despuesDe, Limit.of(tamano + 1));
+        return CursorPaginacion.construir(filas, tamano, Novedad::getId, Function.identity());
     }
 
     @Override
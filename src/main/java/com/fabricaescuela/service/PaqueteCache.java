@@ -0,0 +1,46 @@
+package com.fabricaescuela.service;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import com.fabricaescuela.config.CacheConfig;
+
+/**
+ * Invalida las respuestas de paquetes cacheadas por código cuando cambian los
+ * datos que muestran (destino, destinatario o estado actual).
+ */
+@Component
+public class PaqueteCache {
+
+    private final CacheManager cacheManager;
+
+    public PaqueteCache(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    public void invalidar(String codigoPaquete) {
+        if (codigoPaquete == null) {
+            return;
+        }
+        cache(CacheConfig.PAQUETES_POR_CODIGO).evict(codigoPaquete);
+        cache(CacheConfig.PAQUETES_EN_RUTA_POR_CODIGO).evict(codigoPaquete);
+    }
+
+    /**
+     * Vacía las cachés; se usa cuando cambia un estado, porque su nombre o su
+     * categoría afectan a todos los paquetes que lo tienen como actual.
+     */
+    public void invalidarTodo() {
+        cache(CacheConfig.PAQUETES_POR_CODIGO).clear();
+        cache(CacheConfig.PAQUETES_EN_RUTA_POR_CODIGO).clear();
+    }
+
+    private Cache cache(String nombre) {
+        Cache cache = cacheManager.getCache(nombre);
+        if (cache == null) {
+            throw new IllegalStateException("Caché no configurada: " + nombre);
+        }
+        return cache;
+    }
+}
@@ -1,20 +1,43 @@
 package com.fabricaescuela.service;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import com.fabricaescuela.models.dto.CambioEstadoLoteResponse;
+import com.fabricaescuela.models.dto.PaginaCursor;
+import com.fabricaescuela.models.dto.PaqueteCriteriosBusqueda;
 import com.fabricaescuela.models.dto.PaqueteDireccionUpdateRequest;
 import com.fabricaescuela.models.dto.PaqueteResponseDto;
+import com.fabricaescuela.models.dto.VersionPaquete;
 import com.fabricaescuela.models.entity.Paquete;
 
 public interface PaqueteService {
-    List<PaqueteResponseDto> obtenerTodos();
+    /**
+     * Página de paquetes ordenada por ID, a partir del cursor recibido
+     */
+    PaginaCursor<PaqueteResponseDto> obtenerTodos(String cursor, Integer limite);
 
     Optional<PaqueteResponseDto> consultarPorCodigo(String codigo);
 
     Optional<PaqueteResponseDto> consultarEnRutaPorCodigo(String codigo);
 
+    /**
+     * Versión actual del paquete, para validar peticiones condicionales (ETag / Last-Modified)
+     */
+    Optional<VersionPaquete> consultarVersion(String codigo);
+
+    /**
+     * Versión actual del paquete solo si está en ruta; vacío si no existe o está en otro estado
+     */
+    Optional<VersionPaquete> consultarVersionEnRuta(String codigo);
+
     PaqueteResponseDto actualizarDireccion(String codigo, PaqueteDireccionUpdateRequest request);
     
     // ⭐ NUEVOS MÉTODOS PARA VALIDACIÓN DE NOVEDADES ⭐
@@ -30,19 +53,43 @@ public interface PaqueteService {
     boolean isPaqueteEnTransito(Integer idPaquete);
     
     /**
-     * Obtiene todos los paquetes en tránsito
+     * Página de paquetes en tránsito ordenada por ID, a partir del cursor recibido
      */
-    List<Paquete> findPaquetesEnTransito();
+    PaginaCursor<PaqueteResponseDto> findPaquetesEnTransito(String cursor, Integer limite);
     
     /**
-     * Búsqueda flexible por múltiples criterios
+     * Búsqueda paginada por múltiples criterios; solo se filtra por los criterios no nulos.
+     * El orden admite id, codigoPaquete, fechaRegistro y destino.
      */
-    List<Paquete> buscarPorCriterios(String codigoPaquete, LocalDate fechaRegistro, String nombreEstado);
+    Page<PaqueteResponseDto> buscarPorCriterios(PaqueteCriteriosBusqueda criterios, Pageable pageable);
+    
+    /**
+     * Búsqueda por texto parcial (mínimo 3 caracteres) en código, remitente y destinatario,
+     * ordenada por relevancia
+     */
+    Slice<PaqueteResponseDto> buscarPorTexto(String texto, Pageable pageable);
+    
+    /**
+     * Recalcula el estado actual de todos los paquetes a partir de su historial.
+     * Devuelve la cantidad de paquetes corregidos.
+     */
+    int reconstruirEstadoActual();
+    
+    /**
+     * Escribe los paquetes que cumplen los filtros como JSON delimitado por saltos de línea (NDJSON)
+     */
+    void exportarNdjson(LocalDate fechaDesde, LocalDate fechaHasta, String nombreEstado, OutputStream salida)
+            throws IOException;
     
     /**
      * Actualizar el estado de un paquete
      */
     PaqueteResponseDto actualizarEstado(String codigoPaquete, String nombreEstado);
+    
+    /**
+     * Aplica el mismo estado a varios paquetes en una sola transacción, con resultado por código
+     */
+    CambioEstadoLoteResponse actualizarEstadoLote(List<String> codigos, String nombreEstado);
 }
 
 
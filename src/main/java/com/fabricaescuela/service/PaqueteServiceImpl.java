@@ -1,63 +1,126 @@
 package com.fabricaescuela.service;
 
-import java.text.Normalizer;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.server.ResponseStatusException;
 
+import com.fabricaescuela.config.CacheConfig;
+import com.fabricaescuela.config.MetricasConfig;
+import com.fabricaescuela.models.dto.CambioEstadoLoteResponse;
+import com.fabricaescuela.models.dto.PaginaCursor;
+import com.fabricaescuela.models.dto.PaqueteCriteriosBusqueda;
 import com.fabricaescuela.models.dto.PaqueteDireccionUpdateRequest;
 import com.fabricaescuela.models.dto.PaqueteResponseDto;
+import com.fabricaescuela.models.dto.PaqueteIdCodigo;
+import com.fabricaescuela.models.dto.PaqueteResumen;
+import com.fabricaescuela.models.dto.VersionPaquete;
+import com.fabricaescuela.models.entity.CategoriaEstado;
 import com.fabricaescuela.models.entity.Estado;
 import com.fabricaescuela.models.entity.HistorialEstado;
 import com.fabricaescuela.models.entity.Paquete;
-import com.fabricaescuela.repository.EstadoRepository;
-import com.fabricaescuela.repository.HistorialEstadoRepository;
 import com.fabricaescuela.repository.PaqueteRepository;
+import com.fabricaescuela.repository.PaqueteSpecifications;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
 
 @Service
+@Timed(MetricasConfig.TIEMPO_SERVICIOS)
 public class PaqueteServiceImpl implements PaqueteService {
 
-    private static final String ESTADO_EN_RUTA_TOKEN = "enruta";
+    private static final int EXPORTACION_FILAS_POR_FLUSH = 1000;
+    // Con menos de 3 caracteres no hay trigramas completos y el índice GIN no filtra nada
+    private static final int TEXTO_BUSQUEDA_MINIMO = 3;
+    private static final Set<String> CAMPOS_ORDEN_BUSQUEDA = Set.of("id", "codigoPaquete", "fechaRegistro", "destino");
 
     private final PaqueteRepository paqueteRepository;
-    private final HistorialEstadoRepository historialEstadoRepository;
-    private final EstadoRepository estadoRepository;
+    private final HistorialEstadoService historialEstadoService;
+    private final EstadoCatalogo estadoCatalogo;
+    private final CodigoPaqueteIndice codigoPaqueteIndice;
+    private final PaqueteCache paqueteCache;
+    private final EntityManager entityManager;
+    private final ObjectWriter dtoWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final int intentosMaximos;
 
     public PaqueteServiceImpl(PaqueteRepository paqueteRepository,
-                              HistorialEstadoRepository historialEstadoRepository,
-                              EstadoRepository estadoRepository) {
+                              HistorialEstadoService historialEstadoService,
+                              EstadoCatalogo estadoCatalogo,
+                              CodigoPaqueteIndice codigoPaqueteIndice,
+                              PaqueteCache paqueteCache,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${inventario.concurrencia.intentos:3}") int intentosMaximos) {
         this.paqueteRepository = paqueteRepository;
-        this.historialEstadoRepository = historialEstadoRepository;
-        this.estadoRepository = estadoRepository;
+        this.historialEstadoService = historialEstadoService;
+        this.estadoCatalogo = estadoCatalogo;
+        this.codigoPaqueteIndice = codigoPaqueteIndice;
+        this.paqueteCache = paqueteCache;
+        this.entityManager = entityManager;
+        this.dtoWriter = objectMapper.writerFor(PaqueteResponseDto.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.intentosMaximos = Math.max(1, intentosMaximos);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<PaqueteResponseDto> obtenerTodos() {
-        return paqueteRepository.findAll().stream()
-                .map(paquete -> mapToDto(paquete, obtenerEstadoActual(paquete)))
-                .collect(Collectors.toList());
+    public PaginaCursor<PaqueteResponseDto> obtenerTodos(String cursor, Integer limite) {
+        int despuesDe = CursorPaginacion.decodificar(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        List<PaqueteResumen> filas = paqueteRepository.findResumenesDespuesDe(despuesDe, Limit.of(tamano + 1));
+        return CursorPaginacion.construir(filas, tamano, PaqueteResumen::getId, this::mapToDto);
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PAQUETES_POR_CODIGO, unless = "#result == null")
     public Optional<PaqueteResponseDto> consultarPorCodigo(String codigo) {
         return paqueteRepository.findByCodigoPaquete(codigo)
-                .map(paquete -> mapToDto(paquete, obtenerEstadoActual(paquete)));
+                .map(paquete -> mapToDto(paquete, paquete.getIdEstadoActual()));
     }
 
     @Override
     @Transactional(readOnly = true)
+    @Cacheable(cacheNames = CacheConfig.PAQUETES_EN_RUTA_POR_CODIGO, unless = "#result == null")
     public Optional<PaqueteResponseDto> consultarEnRutaPorCodigo(String codigo) {
         return paqueteRepository.findByCodigoPaquete(codigo)
                 .flatMap(paquete -> {
-                    Estado estadoActual = obtenerEstadoActual(paquete);
+                    Estado estadoActual = paquete.getIdEstadoActual();
                     if (!esEstadoEnRuta(estadoActual)) {
                         return Optional.empty();
                     }
@@ -66,12 +129,30 @@ public class PaqueteServiceImpl implements PaqueteService {
     }
 
     @Override
-    @Transactional
+    @Transactional(readOnly = true)
+    public Optional<VersionPaquete> consultarVersion(String codigo) {
+        OptionalInt idPaquete = codigoPaqueteIndice.resolver(codigo);
+        return idPaquete.isPresent() ? paqueteRepository.findVersionById(idPaquete.getAsInt()) : Optional.empty();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<VersionPaquete> consultarVersionEnRuta(String codigo) {
+        // El estado se decide con el catálogo en memoria, sin cargar el paquete
+        return consultarVersion(codigo)
+                .filter(version -> estadoCatalogo.categoriaDe(version.idEstadoActual()) == CategoriaEstado.EN_TRANSITO);
+    }
+
+    @Override
     public PaqueteResponseDto actualizarDireccion(String codigo, PaqueteDireccionUpdateRequest request) {
+        return conReintentos(codigo, () -> actualizarDireccionEnTransaccion(codigo, request));
+    }
+
+    private PaqueteResponseDto actualizarDireccionEnTransaccion(String codigo, PaqueteDireccionUpdateRequest request) {
         Paquete paquete = paqueteRepository.findByCodigoPaquete(codigo)
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Paquete no encontrado"));
 
-        Estado estadoActual = obtenerEstadoActual(paquete);
+        Estado estadoActual = paquete.getIdEstadoActual();
         if (!esEstadoEnRuta(estadoActual)) {
             throw new ResponseStatusException(HttpStatus.CONFLICT, "El paquete no está en ruta");
         }
@@ -82,20 +163,12 @@ public class PaqueteServiceImpl implements PaqueteService {
         }
 
         Paquete actualizado = paqueteRepository.save(paquete);
+        paqueteCache.invalidar(codigo);
         return mapToDto(actualizado, estadoActual);
     }
 
-    private Estado obtenerEstadoActual(Paquete paquete) {
-        if (paquete.getId() == null) {
-            return null;
-        }
-
-        return historialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc(paquete.getId())
-                .map(HistorialEstado::getIdEstado)
-                .orElse(null);
-    }
-
-    private PaqueteResponseDto mapToDto(Paquete paquete, Estado estadoActual) {
+    // Mapeos y esEstadoEnRuta quedan visibles en el paquete para los benchmarks JMH (src/jmh)
+    PaqueteResponseDto mapToDto(Paquete paquete, Estado estadoActual) {
         return PaqueteResponseDto.builder()
                 .id(paquete.getId())
                 .codigoPaquete(paquete.getCodigoPaquete())
@@ -106,16 +179,19 @@ public class PaqueteServiceImpl implements PaqueteService {
                 .build();
     }
 
-    private boolean esEstadoEnRuta(Estado estado) {
-        if (estado == null || estado.getNombreEstado() == null) {
-            return false;
-        }
+    PaqueteResponseDto mapToDto(PaqueteResumen resumen) {
+        return PaqueteResponseDto.builder()
+                .id(resumen.getId())
+                .codigoPaquete(resumen.getCodigoPaquete())
+                .remitente(resumen.getRemitente())
+                .destinatario(resumen.getDestinatario())
+                .destino(resumen.getDestino())
+                .estadoActual(resumen.getEstadoActual())
+                .build();
+    }
 
-    String normalizado = Normalizer.normalize(estado.getNombreEstado(), Normalizer.Form.NFD)
-        .replaceAll("\\p{M}", "")
-        .toLowerCase(Locale.ROOT)
-        .replaceAll("\\s", "");
-        return normalizado.contains(ESTADO_EN_RUTA_TOKEN);
+    boolean esEstadoEnRuta(Estado estado) {
+        return estado != null && estadoCatalogo.categoriaDe(estado.getId()) == CategoriaEstado.EN_TRANSITO;
     }
     
     // ⭐ NUEVOS MÉTODOS PARA VALIDACIÓN DE NOVEDADES ⭐
@@ -129,54 +205,227 @@ public class PaqueteServiceImpl implements PaqueteService {
     @Override
     @Transactional(readOnly = true)
     public boolean isPaqueteEnTransito(Integer idPaquete) {
-        return paqueteRepository.isPaqueteEnTransito(idPaquete);
+        Set<Integer> idsEnTransito = estadoCatalogo.idsPorCategoria(CategoriaEstado.EN_TRANSITO);
+        return !idsEnTransito.isEmpty() && paqueteRepository.isPaqueteEnTransito(idPaquete, idsEnTransito);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Paquete> findPaquetesEnTransito() {
-        return paqueteRepository.findPaquetesEnTransito();
+    public PaginaCursor<PaqueteResponseDto> findPaquetesEnTransito(String cursor, Integer limite) {
+        int despuesDe = CursorPaginacion.decodificar(cursor);
+        int tamano = CursorPaginacion.normalizarLimite(limite);
+        Set<Integer> idsEnTransito = estadoCatalogo.idsPorCategoria(CategoriaEstado.EN_TRANSITO);
+        List<PaqueteResumen> filas = idsEnTransito.isEmpty()
+                ? List.of()
+                : paqueteRepository.findPaquetesEnTransito(idsEnTransito, despuesDe, tamano + 1);
+        return CursorPaginacion.construir(filas, tamano, PaqueteResumen::getId, this::mapToDto);
     }
     
     @Override
     @Transactional(readOnly = true)
-    public List<Paquete> buscarPorCriterios(String codigoPaquete, java.time.LocalDate fechaRegistro, String nombreEstado) {
-        return paqueteRepository.buscarPorCriterios(codigoPaquete, fechaRegistro, nombreEstado);
+    public Page<PaqueteResponseDto> buscarPorCriterios(PaqueteCriteriosBusqueda criterios, Pageable pageable) {
+        Pageable pagina = validarPaginaBusqueda(pageable);
+
+        Integer idEstado = null;
+        if (criterios.nombreEstado() != null) {
+            Optional<Estado> estado = estadoCatalogo.buscarPorNombre(criterios.nombreEstado());
+            if (estado.isEmpty()) {
+                // Ningún paquete puede tener un estado que no existe
+                return Page.empty(pagina);
+            }
+            idEstado = estado.get().getId();
+        }
+
+        Specification<Paquete> filtro = Specification.allOf(
+                PaqueteSpecifications.codigoIgual(criterios.codigoPaquete()),
+                PaqueteSpecifications.fechaRegistroIgual(criterios.fechaRegistro()),
+                PaqueteSpecifications.fechaRegistroDesde(criterios.fechaDesde()),
+                PaqueteSpecifications.fechaRegistroHasta(criterios.fechaHasta()),
+                PaqueteSpecifications.destinoIgual(criterios.destino()),
+                PaqueteSpecifications.clienteRemitente(criterios.idClienteRemitente()),
+                PaqueteSpecifications.clienteDestinatario(criterios.idClienteDestinatario()),
+                PaqueteSpecifications.empleadoResponsable(criterios.idEmpleadoResponsable()),
+                PaqueteSpecifications.estadoActual(idEstado),
+                PaqueteSpecifications.conEstadoActual());
+
+        return paqueteRepository.findAll(filtro, pagina)
+                .map(paquete -> mapToDto(paquete, paquete.getIdEstadoActual()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<PaqueteResponseDto> buscarPorTexto(String texto, Pageable pageable) {
+        String normalizado = texto == null ? "" : texto.strip().toLowerCase(Locale.ROOT);
+        if (normalizado.length() < TEXTO_BUSQUEDA_MINIMO) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "El texto de búsqueda debe tener al menos " + TEXTO_BUSQUEDA_MINIMO + " caracteres");
+        }
+        String literal = escaparLike(normalizado);
+        // El orden por relevancia lo define la consulta; solo se toman página y tamaño
+        Pageable pagina = PageRequest.of(pageable.getPageNumber(),
+                Math.min(pageable.getPageSize(), CursorPaginacion.LIMITE_MAXIMO));
+        // Candidatos por fuente: hasta el final de la página más uno, para saber si hay otra
+        int limite = Math.toIntExact(pagina.getOffset() + pagina.getPageSize() + 1);
+        return paqueteRepository.buscarPorTexto(normalizado, "%" + literal + "%", literal + "%", limite, pagina)
+                .map(this::mapToDto);
+    }
+
+    private static String escaparLike(String texto) {
+        return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Limita el tamaño de página y acepta solo columnas de orden conocidas; siempre
+     * desempata por ID para que las páginas sean estables.
+     */
+    private Pageable validarPaginaBusqueda(Pageable pageable) {
+        Sort orden = Sort.unsorted();
+        for (Sort.Order o : pageable.getSort()) {
+            if (!CAMPOS_ORDEN_BUSQUEDA.contains(o.getProperty())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "No se puede ordenar por '" + o.getProperty() + "'. Campos permitidos: " + CAMPOS_ORDEN_BUSQUEDA);
+            }
+            orden = orden.and(Sort.by(o.getDirection(), o.getProperty()));
+        }
+        if (orden.getOrderFor("id") == null) {
+            orden = orden.and(Sort.by("id"));
+        }
+        int tamano = Math.min(pageable.getPageSize(), CursorPaginacion.LIMITE_MAXIMO);
+        return PageRequest.of(pageable.getPageNumber(), tamano, orden);
     }
     
     @Override
     @Transactional
+    public int reconstruirEstadoActual() {
+        return paqueteRepository.recalcularEstadoActualDesdeHistorial();
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public void exportarNdjson(LocalDate fechaDesde, LocalDate fechaHasta, String nombreEstado, OutputStream salida)
+            throws IOException {
+        // Mismas reglas de nombre que el resto de la API ("EN_TRANSITO" = "En tránsito")
+        Set<Integer> idsEstado = null;
+        if (nombreEstado != null) {
+            idsEstado = estadoCatalogo.idsPorNombre(nombreEstado);
+            if (idsEstado.isEmpty()) {
+                // Ningún paquete puede tener un estado que no existe
+                return;
+            }
+        }
+
+        OutputStream buffer = new BufferedOutputStream(salida, 64 * 1024);
+        try (Stream<Paquete> paquetes = paqueteRepository.streamParaExportar(fechaDesde, fechaHasta, idsEstado)) {
+            int escritas = 0;
+            for (Paquete paquete : (Iterable<Paquete>) paquetes::iterator) {
+                buffer.write(dtoWriter.writeValueAsBytes(mapToDto(paquete, paquete.getIdEstadoActual())));
+                buffer.write('\n');
+                // Sacar la entidad del contexto de persistencia para que el heap no crezca con el cursor
+                entityManager.detach(paquete);
+                if (++escritas % EXPORTACION_FILAS_POR_FLUSH == 0) {
+                    buffer.flush();
+                }
+            }
+        }
+        buffer.flush();
+    }
+    
+    @Override
     public PaqueteResponseDto actualizarEstado(String codigoPaquete, String nombreEstado) {
-        // Buscar el paquete
-        Paquete paquete = paqueteRepository.findByCodigoPaquete(codigoPaquete)
+        return conReintentos(codigoPaquete, () -> actualizarEstadoEnTransaccion(codigoPaquete, nombreEstado));
+    }
+
+    private PaqueteResponseDto actualizarEstadoEnTransaccion(String codigoPaquete, String nombreEstado) {
+        // Resolver el ID desde el índice en memoria y cargar el paquete; su versión
+        // impide que dos cambios simultáneos confirmen ambos
+        int idPaquete = codigoPaqueteIndice.resolver(codigoPaquete)
+            .orElseThrow(() -> new IllegalArgumentException("Paquete no encontrado: " + codigoPaquete));
+        Paquete paquete = paqueteRepository.findParaActualizar(idPaquete)
             .orElseThrow(() -> new IllegalArgumentException("Paquete no encontrado: " + codigoPaquete));
 
-        // Normalizar el nombre del estado para comparación flexible
-        String estadoBuscado = nombreEstado.trim().toLowerCase();
-        
-        // Buscar el estado en la base de datos
-        Estado nuevoEstado = estadoRepository.findAll().stream()
-            .filter(e -> e.getNombreEstado() != null && 
-                        e.getNombreEstado().toLowerCase().equals(estadoBuscado))
-            .findFirst()
+        // Resolver el estado desde el catálogo en memoria (nombre sin tildes, mayúsculas ni separadores)
+        Estado nuevoEstado = estadoCatalogo.buscarPorNombre(nombreEstado)
             .orElseThrow(() -> new IllegalArgumentException(
-                "Estado no encontrado: " + nombreEstado + ". Estados disponibles: " + 
-                estadoRepository.findAll().stream()
-                    .map(Estado::getNombreEstado)
-                    .collect(Collectors.joining(", "))
+                "Estado no encontrado: " + nombreEstado + ". Estados disponibles: " +
+                estadoCatalogo.nombresDisponibles()
             ));
 
-        // Actualizar el estado del paquete
-        paquete.setIdEstadoActual(nuevoEstado);
-        Paquete paqueteActualizado = paqueteRepository.save(paquete);
-
-        // Registrar en el historial de estados
+        // Registrar en el historial de estados; el servicio de historial actualiza
+        // idEstadoActual del paquete en esta misma transacción
         HistorialEstado historial = new HistorialEstado();
         historial.setIdPaquete(paquete);
         historial.setIdEstado(nuevoEstado);
-        historial.setFechaHora(java.time.LocalDate.now());
-        historialEstadoRepository.save(historial);
+        historial.setFechaHora(LocalDate.now());
+        historialEstadoService.save(historial);
+
+        return mapToDto(paquete, paquete.getIdEstadoActual());
+    }
 
-        return mapToDto(paqueteActualizado, nuevoEstado);
+    @Override
+    @Transactional
+    public CambioEstadoLoteResponse actualizarEstadoLote(List<String> codigos, String nombreEstado) {
+        Estado nuevoEstado = estadoCatalogo.buscarPorNombre(nombreEstado)
+            .orElseThrow(() -> new IllegalArgumentException(
+                "Estado no encontrado: " + nombreEstado + ". Estados disponibles: " +
+                estadoCatalogo.nombresDisponibles()
+            ));
+
+        // Una sola consulta IN para todo el lote (sin repetidos)
+        Set<String> unicos = new LinkedHashSet<>(codigos);
+        Map<String, Integer> idsPorCodigo = new HashMap<>();
+        for (PaqueteIdCodigo paquete : paqueteRepository.findIdsPorCodigos(unicos)) {
+            idsPorCodigo.put(paquete.getCodigoPaquete(), paquete.getId());
+        }
+
+        if (!idsPorCodigo.isEmpty()) {
+            historialEstadoService.registrarLote(idsPorCodigo.values(), nuevoEstado, LocalDate.now());
+            idsPorCodigo.keySet().forEach(paqueteCache::invalidar);
+        }
+
+        List<CambioEstadoLoteResponse.Resultado> resultados = new ArrayList<>(codigos.size());
+        Set<String> vistos = new HashSet<>();
+        for (String codigo : codigos) {
+            CambioEstadoLoteResponse.TipoResultado tipo;
+            if (!vistos.add(codigo)) {
+                tipo = CambioEstadoLoteResponse.TipoResultado.DUPLICADO;
+            } else if (idsPorCodigo.containsKey(codigo)) {
+                tipo = CambioEstadoLoteResponse.TipoResultado.ACTUALIZADO;
+            } else {
+                tipo = CambioEstadoLoteResponse.TipoResultado.NO_ENCONTRADO;
+            }
+            resultados.add(new CambioEstadoLoteResponse.Resultado(codigo, tipo));
+        }
+
+        return new CambioEstadoLoteResponse(nuevoEstado.getNombreEstado(), idsPorCodigo.size(),
+                unicos.size() - idsPorCodigo.size(), resultados);
+    }
+
+    /**
+     * Ejecuta la operación en su propia transacción y la repite desde cero si otra
+     * transacción modificó el paquete antes del commit (bloqueo optimista). Agotados
+     * los intentos responde 409 con la versión vigente del paquete.
+     */
+    private <T> T conReintentos(String codigoPaquete, Supplier<T> operacion) {
+        for (int intento = 1; ; intento++) {
+            try {
+                return transactionTemplate.execute(estado -> operacion.get());
+            } catch (OptimisticLockingFailureException e) {
+                if (intento >= intentosMaximos) {
+                    throw new ConflictoVersionException(codigoPaquete, consultarVersion(codigoPaquete).orElse(null));
+                }
+                esperarAntesDeReintentar(intento);
+            }
+        }
+    }
+
+    // Espera creciente con variación aleatoria para que los reintentos no vuelvan a coincidir
+    private static void esperarAntesDeReintentar(int intento) {
+        long espera = ThreadLocalRandom.current().nextLong(5, 20) * intento;
+        try {
+            Thread.sleep(espera);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Actualización interrumpida");
+        }
     }
 }
@@ -0,0 +1,31 @@
+-- =====================================================================
+-- V10: índices para que GET /api/paquetes/buscar/texto lea solo las
+-- filas de la página en lugar de puntuar todas las coincidencias.
+--  - B-tree de lower(...) con COLLATE "C": resuelve el código exacto y
+--    LIKE 'texto%' como un rango, y entrega los prefijos ya ordenados.
+--  - GiST de trigramas: además de LIKE '%texto%' permite recorrer las
+--    coincidencias por distancia (<->) y cortar con LIMIT; reemplaza a
+--    los GIN de V5, que solo servían a esta consulta y no ordenan.
+-- =====================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_codigo_prefijo
+    ON paquetes (lower(codigo_paquete) COLLATE "C", id_paquete);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_remitente_prefijo
+    ON paquetes (lower(remitente) COLLATE "C", id_paquete);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_destinatario_prefijo
+    ON paquetes (lower(destinatario) COLLATE "C", id_paquete);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_codigo_trgm_gist
+    ON paquetes USING gist (lower(codigo_paquete) gist_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_remitente_trgm_gist
+    ON paquetes USING gist (lower(remitente) gist_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_destinatario_trgm_gist
+    ON paquetes USING gist (lower(destinatario) gist_trgm_ops);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_paquetes_codigo_trgm;
+DROP INDEX CONCURRENTLY IF EXISTS idx_paquetes_remitente_trgm;
+DROP INDEX CONCURRENTLY IF EXISTS idx_paquetes_destinatario_trgm;
@@ -0,0 +1,57 @@
+-- =====================================================================
+-- V1: esquema inicial (equivalente al que generaba ddl-auto=update)
+-- En bases existentes esta versión se marca como baseline y no se ejecuta.
+-- =====================================================================
+
+CREATE TABLE estados (
+    id_estado           integer GENERATED BY DEFAULT AS IDENTITY,
+    nombre_estado       varchar(30)  NOT NULL,
+    descripcion_estado  varchar(255),
+    PRIMARY KEY (id_estado)
+);
+
+CREATE TABLE paquetes (
+    id_paquete               integer GENERATED BY DEFAULT AS IDENTITY,
+    id_empleado_responsable  integer,
+    codigo_paquete           varchar(255) NOT NULL,
+    remitente                varchar(70)  NOT NULL,
+    destinatario             varchar(70)  NOT NULL,
+    fecha_registro           date         NOT NULL,
+    destino                  varchar(30)  NOT NULL,
+    id_estado_actual         integer,
+    id_cliente_remitente     integer,
+    id_cliente_destinatario  integer,
+    PRIMARY KEY (id_paquete),
+    CONSTRAINT fk_paquetes_estado_actual FOREIGN KEY (id_estado_actual) REFERENCES estados
+);
+
+CREATE TABLE historial_estados (
+    id_historia_estadol  integer GENERATED BY DEFAULT AS IDENTITY,
+    id_empleado          integer,
+    id_paquete           integer,
+    id_estado            integer,
+    fecha_hora           date,
+    PRIMARY KEY (id_historia_estadol),
+    CONSTRAINT fk_historial_estados_paquete FOREIGN KEY (id_paquete) REFERENCES paquetes,
+    CONSTRAINT fk_historial_estados_estado FOREIGN KEY (id_estado) REFERENCES estados
+);
+
+CREATE TABLE historial_ubicaciones (
+    id_historial_ubicacion  integer GENERATED BY DEFAULT AS IDENTITY,
+    id_paquete              integer NOT NULL,
+    ubicacion               text    NOT NULL,
+    fecha_hora              timestamp(6) with time zone,
+    PRIMARY KEY (id_historial_ubicacion),
+    CONSTRAINT fk_historial_ubicaciones_paquete FOREIGN KEY (id_paquete) REFERENCES paquetes
+);
+
+CREATE TABLE novedades (
+    id_novedad    integer GENERATED BY DEFAULT AS IDENTITY,
+    id_paquete    integer      NOT NULL,
+    tipo_novedad  varchar(30)  NOT NULL,
+    descripcion   varchar(255) NOT NULL,
+    fecha_hora    date         NOT NULL,
+    id_empleado   integer,
+    PRIMARY KEY (id_novedad),
+    CONSTRAINT fk_novedades_paquete FOREIGN KEY (id_paquete) REFERENCES paquetes
+);
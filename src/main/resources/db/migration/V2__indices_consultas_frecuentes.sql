@@ -0,0 +1,29 @@
+-- =====================================================================
+-- V2: índices para las búsquedas de todos los endpoints.
+-- CONCURRENTLY no bloquea escrituras mientras se construye el índice; Flyway
+-- ejecuta estas sentencias fuera de transacción.
+--
+-- Si ya existen códigos de paquete duplicados, el índice único falla y queda
+-- marcado como INVALID: hay que depurar los duplicados, borrar el índice
+-- (DROP INDEX CONCURRENTLY uk_paquetes_codigo) y reparar la migración.
+-- =====================================================================
+
+-- GET /api/paquetes/{codigo}, ubicaciones, cambios de estado: búsqueda por código
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_paquetes_codigo
+    ON paquetes (codigo_paquete);
+
+-- Paquetes por estado actual (en tránsito, búsquedas) y verificación de novedades
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_estado_actual_id
+    ON paquetes (id_estado_actual, id_paquete);
+
+-- Último estado e historial por paquete (ORDER BY fecha_hora DESC, id DESC)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_historial_estados_paquete_fecha
+    ON historial_estados (id_paquete, fecha_hora, id_historia_estadol);
+
+-- Historial y última ubicación por paquete
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_historial_ubicaciones_paquete_fecha
+    ON historial_ubicaciones (id_paquete, fecha_hora);
+
+-- Novedades por paquete
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_novedades_paquete
+    ON novedades (id_paquete);
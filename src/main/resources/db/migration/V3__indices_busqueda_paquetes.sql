@@ -0,0 +1,21 @@
+-- =====================================================================
+-- V3: índices para los filtros de GET /api/paquetes/buscar. La consulta
+-- solo incluye los predicados enviados, así que cada filtro necesita su
+-- propio índice para no terminar en un recorrido completo de paquetes.
+-- =====================================================================
+
+-- Fecha exacta y rangos fechaDesde / fechaHasta (también ordenar por fecha)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_fecha_registro
+    ON paquetes (fecha_registro, id_paquete);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_destino
+    ON paquetes (destino);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_cliente_remitente
+    ON paquetes (id_cliente_remitente);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_cliente_destinatario
+    ON paquetes (id_cliente_destinatario);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_empleado_responsable
+    ON paquetes (id_empleado_responsable);
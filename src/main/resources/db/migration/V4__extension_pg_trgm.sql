@@ -0,0 +1,8 @@
+-- =====================================================================
+-- V4: extensión de trigramas para la búsqueda por texto parcial
+-- (GET /api/paquetes/buscar/texto). Va en su propia migración porque
+-- los índices de V5 se crean CONCURRENTLY, fuera de transacción.
+-- pg_trgm es una extensión "trusted": la puede instalar el dueño de la base.
+-- =====================================================================
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
@@ -0,0 +1,14 @@
+-- =====================================================================
+-- V5: índices GIN de trigramas para LIKE '%texto%' y 'texto%' sobre
+-- código, remitente y destinatario. Se indexa lower(...) porque la
+-- búsqueda no distingue mayúsculas; la consulta debe usar la misma expresión.
+-- =====================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_codigo_trgm
+    ON paquetes USING gin (lower(codigo_paquete) gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_remitente_trgm
+    ON paquetes USING gin (lower(remitente) gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_paquetes_destinatario_trgm
+    ON paquetes USING gin (lower(destinatario) gin_trgm_ops);
@@ -0,0 +1,10 @@
+-- =====================================================================
+-- V6: versión y fecha de última modificación de cada paquete, para
+-- responder 304 Not Modified (ETag / Last-Modified) sin armar la respuesta.
+-- Con valores por defecto constantes Postgres agrega las columnas sin
+-- reescribir la tabla.
+-- =====================================================================
+
+ALTER TABLE paquetes
+    ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN IF NOT EXISTS ultima_modificacion TIMESTAMPTZ NOT NULL DEFAULT now();
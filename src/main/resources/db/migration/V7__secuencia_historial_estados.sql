@@ -0,0 +1,24 @@
+-- =====================================================================
+-- V7: historial_estados pasa de IDENTITY a una secuencia con incremento 50.
+-- Con IDENTITY Hibernate necesita el ID de cada fila al insertarla y no
+-- puede agrupar INSERTs en lotes JDBC; con la secuencia reserva 50 IDs por
+-- llamada (optimizador "pooled") y envía los INSERTs en bloque.
+--
+-- El siguiente valor queda en MAX + 51 porque Hibernate usa los 50 IDs
+-- anteriores a cada valor que obtiene. El DEFAULT de la columna también
+-- usa la secuencia, así que los INSERTs hechos por SQL no chocan con los
+-- bloques reservados por la aplicación.
+-- =====================================================================
+
+CREATE SEQUENCE IF NOT EXISTS historial_estados_seq INCREMENT BY 50;
+
+ALTER TABLE historial_estados ALTER COLUMN id_historia_estadol DROP IDENTITY IF EXISTS;
+
+SELECT setval('historial_estados_seq',
+              COALESCE((SELECT MAX(id_historia_estadol) FROM historial_estados), 0) + 51,
+              false);
+
+ALTER TABLE historial_estados
+    ALTER COLUMN id_historia_estadol SET DEFAULT nextval('historial_estados_seq');
+
+ALTER SEQUENCE historial_estados_seq OWNED BY historial_estados.id_historia_estadol;
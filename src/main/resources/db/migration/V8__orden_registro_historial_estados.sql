@@ -0,0 +1,36 @@
+-- =====================================================================
+-- V8: orden de registro de cada historial de estado.
+-- Desde V7 los IDs salen de bloques de 50 reservados por cada instancia
+-- de la aplicación, así que un historial confirmado después puede tener
+-- un ID menor; y fecha_hora es solo la fecha. Para saber cuál es el
+-- último cambio del día se usa orden_registro: lo asigna la base al
+-- insertar (una sola secuencia, sin bloques), y como los cambios de un
+-- mismo paquete se serializan con la versión del paquete, sigue el orden
+-- en que se confirmaron.
+--
+-- Las filas existentes se numeran en el orden que se usaba hasta ahora
+-- (fecha_hora, ID). ADD COLUMN bloquea la tabla hasta el final de la
+-- migración, así que ningún INSERT queda sin valor entre el UPDATE y el
+-- DEFAULT.
+-- =====================================================================
+
+CREATE SEQUENCE IF NOT EXISTS historial_estados_orden_seq;
+
+ALTER TABLE historial_estados ADD COLUMN IF NOT EXISTS orden_registro BIGINT;
+
+UPDATE historial_estados h
+SET orden_registro = numerados.orden
+FROM (SELECT id_historia_estadol,
+             row_number() OVER (ORDER BY fecha_hora, id_historia_estadol) AS orden
+      FROM historial_estados) numerados
+WHERE numerados.id_historia_estadol = h.id_historia_estadol;
+
+SELECT setval('historial_estados_orden_seq',
+              COALESCE((SELECT MAX(orden_registro) FROM historial_estados), 0) + 1,
+              false);
+
+ALTER TABLE historial_estados
+    ALTER COLUMN orden_registro SET DEFAULT nextval('historial_estados_orden_seq'),
+    ALTER COLUMN orden_registro SET NOT NULL;
+
+ALTER SEQUENCE historial_estados_orden_seq OWNED BY historial_estados.orden_registro;
@@ -0,0 +1,10 @@
+-- =====================================================================
+-- V9: el último estado por paquete se ordena por (fecha_hora, orden_registro)
+-- en lugar de (fecha_hora, ID); el índice cambia igual. Fuera de
+-- transacción (CONCURRENTLY), como V2.
+-- =====================================================================
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_historial_estados_paquete_orden
+    ON historial_estados (id_paquete, fecha_hora, orden_registro);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_historial_estados_paquete_fecha;
@@ -0,0 +1,36 @@
+package com.fabricaescuela.config;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * Verificaciones de MockMvc sobre las sentencias SQL que ejecutó una petición,
+ * contadas por {@link MetricasJdbcFilter}:
+ *
+ * <pre>
+ * mockMvc.perform(get("/api/paquetes")).andExpect(ConteoSentencias.maximo(2));
+ * </pre>
+ */
+public final class ConteoSentencias {
+
+    private ConteoSentencias() {
+    }
+
+    /** Falla si la petición ejecutó más de {@code presupuesto} sentencias SQL. */
+    public static ResultMatcher maximo(int presupuesto) {
+        return resultado -> {
+            long ejecutadas = sentencias(resultado);
+            assertTrue(ejecutadas <= presupuesto, () -> String.format("%s %s ejecutó %d sentencias SQL (presupuesto: %d)",
+                    resultado.getRequest().getMethod(), resultado.getRequest().getRequestURI(), ejecutadas, presupuesto));
+        };
+    }
+
+    public static long sentencias(MvcResult resultado) {
+        Object medicion = resultado.getRequest().getAttribute(MetricasJdbcFilter.MEDICION);
+        assertNotNull(medicion, "La petición no pasó por MetricasJdbcFilter (¿inventario.metricas.jdbc.habilitada=false?)");
+        return ((ContadorJdbc.Medicion) medicion).sentencias();
+    }
+}
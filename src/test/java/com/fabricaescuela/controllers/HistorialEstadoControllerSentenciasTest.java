@@ -0,0 +1,58 @@
+package com.fabricaescuela.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.fabricaescuela.config.ConteoSentencias;
+
+class HistorialEstadoControllerSentenciasTest extends PresupuestoSentenciasTest {
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void listarHistoriales(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/historial-estados").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void obtenerPorId(int paquetes) throws Exception {
+        sembrar(paquetes);
+        Integer id = jdbcTemplate.queryForObject(
+                "SELECT min(id_historia_estadol) FROM historial_estados WHERE id_paquete = ?", Integer.class,
+                ID_PAQUETE_PRINCIPAL);
+        mockMvc.perform(get("/api/historial-estados/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void obtenerPorPaquete(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/historial-estados/paquete/{idPaquete}", ID_PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void crearHistorial(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // Paquete, INSERT, último historial, UPDATE del estado actual y, cada 50, la secuencia
+        mockMvc.perform(post("/api/historial-estados")
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"idPaquete\": {\"id\": 2}, \"idEstado\": {\"id\": 3}, \"fechaHora\": \"2025-12-01\"}"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(5));
+    }
+}
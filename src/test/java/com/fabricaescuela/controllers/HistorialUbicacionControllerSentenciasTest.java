@@ -0,0 +1,45 @@
+package com.fabricaescuela.controllers;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+import com.fabricaescuela.config.ConteoSentencias;
+
+class HistorialUbicacionControllerSentenciasTest extends PresupuestoSentenciasTest {
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void consultarHistorial(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/{codigo}/ubicaciones", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void obtenerUltima(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/{codigo}/ubicaciones/ultima", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void registrarUbicacion(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(post("/api/paquetes/{codigo}/ubicaciones", PAQUETE_PRINCIPAL)
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"ubicacion\": \"Bodega Central Bogotá\"}"))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+}
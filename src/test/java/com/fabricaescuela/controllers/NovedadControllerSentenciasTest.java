@@ -0,0 +1,70 @@
+package com.fabricaescuela.controllers;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.fabricaescuela.config.ConteoSentencias;
+
+/**
+ * Los GET de novedades exigen {@code NOVEDAD_VIEW}, pero el filtro JWT deja pasar
+ * los GET sin autenticar: el usuario se inyecta directamente en el contexto de seguridad.
+ */
+class NovedadControllerSentenciasTest extends PresupuestoSentenciasTest {
+
+    private static final RequestPostProcessor OPERADOR = user("operador")
+            .authorities(new SimpleGrantedAuthority("NOVEDAD_VIEW"));
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void listarNovedades(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/novedades").param("limit", "50").with(OPERADOR))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void obtenerPorId(int paquetes) throws Exception {
+        sembrar(paquetes);
+        Integer id = jdbcTemplate.queryForObject("SELECT min(id_novedad) FROM novedades WHERE id_paquete = ?",
+                Integer.class, ID_PAQUETE_PRINCIPAL);
+        mockMvc.perform(get("/api/novedades/{id}", id).with(OPERADOR))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void obtenerPorPaquete(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // Existencia del paquete + sus novedades
+        mockMvc.perform(get("/api/novedades/paquete/{idPaquete}", ID_PAQUETE_PRINCIPAL).with(OPERADOR))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void registrarNovedad(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(post("/api/novedades")
+                        .header(HttpHeaders.AUTHORIZATION, bearer("NOVEDAD_CREATE"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"idPaquete": %d, "tipoNovedad": "RETRASO",
+                                 "descripcion": "Vía cerrada", "fechaHora": "2025-12-01"}
+                                """.formatted(ID_PAQUETE_PRINCIPAL)))
+                .andExpect(status().is2xxSuccessful())
+                .andExpect(ConteoSentencias.maximo(3));
+    }
+}
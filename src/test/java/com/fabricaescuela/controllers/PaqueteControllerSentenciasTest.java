@@ -0,0 +1,139 @@
+package com.fabricaescuela.controllers;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fabricaescuela.config.ConteoSentencias;
+
+class PaqueteControllerSentenciasTest extends PresupuestoSentenciasTest {
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void listarPaquetes(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void consultarPorCodigo(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void consultarEnRuta(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/en-ruta/{codigo}", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void buscarPorCriterios(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // Página + conteo del total cuando hay más de una página
+        mockMvc.perform(get("/api/paquetes/buscar").param("destino", "Cali").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void buscarPorTexto(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/buscar/texto").param("q", "Destinatario 1").param("size", "50"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void exportarPorEstado(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // El nombre se resuelve con el catálogo, como en el resto de la API: "en tránsito" = EN_TRANSITO.
+        // La exportación corre en otro hilo, fuera del conteo de sentencias de la petición
+        MvcResult exportacion = mockMvc.perform(get("/api/paquetes/exportar")
+                        .param("fechaDesde", "2025-01-01")
+                        .param("fechaHasta", "2025-01-10")
+                        .param("nombreEstado", "en tránsito"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(exportacion))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("\"" + PAQUETE_PRINCIPAL + "\"")))
+                .andExpect(content().string(not(containsString("\"PKG-SQL-3\""))));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void listarEnTransito(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(get("/api/paquetes/en-transito").param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void actualizarEstado(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // Paquete con su estado, INSERT del historial, último historial, un único UPDATE
+        // (que también incrementa la versión) y, una vez cada 50 historiales, el
+        // siguiente bloque de la secuencia
+        mockMvc.perform(put("/api/paquetes/{codigo}/estado", "PKG-SQL-3")
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .param("nuevoEstado", "EN_BODEGA"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(5));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void actualizarDireccion(int paquetes) throws Exception {
+        sembrar(paquetes);
+        mockMvc.perform(put("/api/paquetes/{codigo}/direccion", PAQUETE_PRINCIPAL)
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"destino\": \"Pereira\"}"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(2));
+    }
+
+    @ParameterizedTest(name = "{0} paquetes")
+    @ValueSource(ints = {10, 10_000})
+    void actualizarEstadoLote(int paquetes) throws Exception {
+        sembrar(paquetes);
+        // Siempre 10 códigos: el presupuesto depende del tamaño del lote, no de la tabla
+        String codigos = IntStream.rangeClosed(1, 10)
+                .mapToObj(n -> "\"PKG-SQL-" + n + "\"")
+                .collect(Collectors.joining(","));
+        mockMvc.perform(put("/api/paquetes/estado/lote")
+                        .header(HttpHeaders.AUTHORIZATION, bearer())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"codigos\": [" + codigos + "], \"nuevoEstado\": \"EN_REPARTO\"}"))
+                .andExpect(status().isOk())
+                .andExpect(ConteoSentencias.maximo(3));
+    }
+}
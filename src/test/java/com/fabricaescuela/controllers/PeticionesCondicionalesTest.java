@@ -0,0 +1,109 @@
+package com.fabricaescuela.controllers;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import com.fabricaescuela.config.ConteoSentencias;
+
+/**
+ * ETag / Last-Modified de las consultas de seguimiento: solo en respuestas 200,
+ * con un Cache-Control que permite guardar y revalidar, y visibles por CORS.
+ */
+class PeticionesCondicionalesTest extends PresupuestoSentenciasTest {
+
+    // Existe pero no está en tránsito (su estado actual es EN_REPARTO)
+    private static final String PAQUETE_FUERA_DE_RUTA = "PKG-SQL-3";
+    private static final String PAQUETE_SIN_UBICACIONES = "PKG-COND-SIN-UBICACIONES";
+
+    @BeforeEach
+    void sembrarPaquetes() {
+        sembrar(10);
+        jdbcTemplate.update("""
+                INSERT INTO paquetes (codigo_paquete, remitente, destinatario, fecha_registro, destino, id_estado_actual)
+                VALUES (?, 'Remitente', 'Destinatario', DATE '2025-01-01', 'Cali', 1)
+                ON CONFLICT DO NOTHING
+                """, PAQUETE_SIN_UBICACIONES);
+    }
+
+    @Test
+    void respondeNoModificadoConLaVersionActual() throws Exception {
+        String etag = mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL,
+                        allOf(containsString("no-cache"), containsString("private"), not(containsString("no-store")))))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_PRINCIPAL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, not(containsString("no-store"))));
+        mockMvc.perform(get("/api/paquetes/{codigo}/ubicaciones", PAQUETE_PRINCIPAL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void elNoModificadoSoloConsultaLaVersion() throws Exception {
+        String etag = mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_PRINCIPAL))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // El estado en ruta y la existencia de ubicaciones salen de la misma consulta de la versión
+        mockMvc.perform(get("/api/paquetes/en-ruta/{codigo}", PAQUETE_PRINCIPAL).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(ConteoSentencias.maximo(1));
+        mockMvc.perform(get("/api/paquetes/{codigo}/ubicaciones/ultima", PAQUETE_PRINCIPAL)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(ConteoSentencias.maximo(1));
+    }
+
+    @Test
+    void paqueteFueraDeRutaEsNoEncontradoSinValidadores() throws Exception {
+        String etag = mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_FUERA_DE_RUTA))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/paquetes/en-ruta/{codigo}", PAQUETE_FUERA_DE_RUTA))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED));
+        // Con la versión vigente del paquete sigue siendo 404, nunca 304
+        mockMvc.perform(get("/api/paquetes/en-ruta/{codigo}", PAQUETE_FUERA_DE_RUTA).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void paqueteSinUbicacionesEsNoEncontradoSinValidadores() throws Exception {
+        String etag = mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_SIN_UBICACIONES))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/paquetes/{codigo}/ubicaciones/ultima", PAQUETE_SIN_UBICACIONES)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void paqueteInexistenteNoLlevaValidadores() throws Exception {
+        mockMvc.perform(get("/api/paquetes/{codigo}", "PKG-NO-EXISTE").header(HttpHeaders.IF_NONE_MATCH, "*"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
+    @Test
+    void exponeElEtagAlFrontend() throws Exception {
+        mockMvc.perform(get("/api/paquetes/{codigo}", PAQUETE_PRINCIPAL).header(HttpHeaders.ORIGIN, "http://localhost:3000"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCESS_CONTROL_EXPOSE_HEADERS, containsString("ETag")));
+    }
+}
@@ -0,0 +1,154 @@
+package com.fabricaescuela.controllers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.fabricaescuela.service.EstadoCatalogo;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Base de las pruebas de presupuesto de sentencias SQL por endpoint: cada
+ * endpoint debe ejecutar la misma cantidad acotada de sentencias con 10 que con
+ * 10.000 paquetes, así un N+1 rompe la prueba en lugar de llegar a producción.
+ * <p>
+ * Los datos se generan con SQL: {@code PKG-SQL-n} tiene ID {@code n}, dos estados
+ * en su historial, dos ubicaciones y una novedad. {@code PKG-SQL-1} además
+ * acumula un registro de cada tipo por paquete sembrado, para que también
+ * crezcan las colecciones de un mismo paquete. Las cachés se vacían antes de
+ * cada prueba para medir siempre el camino que va a la base de datos.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@Import(PresupuestoSentenciasTest.PostgresPruebas.class)
+@Testcontainers(disabledWithoutDocker = true)
+abstract class PresupuestoSentenciasTest {
+
+    static final String PAQUETE_PRINCIPAL = "PKG-SQL-1";
+    static final int ID_PAQUETE_PRINCIPAL = 1;
+
+    // Nombres de estado en el orden de sus IDs
+    static final List<String> ESTADOS = List.of("REGISTRADO", "EN_TRANSITO", "EN_BODEGA", "EN_REPARTO", "ENTREGADO");
+    static final int ID_EN_TRANSITO = 2;
+
+    private static int paquetesSembrados;
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class PostgresPruebas {
+
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgres() {
+            return new PostgreSQLContainer<>("postgres:16-alpine");
+        }
+    }
+
+    @Autowired
+    protected MockMvc mockMvc;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private EstadoCatalogo estadoCatalogo;
+
+    @Value("${jwt.secret}")
+    private String secreto;
+
+    @BeforeEach
+    void vaciarCaches() {
+        cacheManager.getCacheNames().forEach(nombre -> cacheManager.getCache(nombre).clear());
+    }
+
+    /** Deja exactamente {@code paquetes} paquetes sembrados (no hace nada si ya están). */
+    protected void sembrar(int paquetes) {
+        if (paquetes == paquetesSembrados) {
+            return;
+        }
+        for (int id = 1; id <= ESTADOS.size(); id++) {
+            jdbcTemplate.update("INSERT INTO estados (id_estado, nombre_estado) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                    id, ESTADOS.get(id - 1));
+        }
+        estadoCatalogo.recargar();
+
+        // Sin RESTART IDENTITY: historial_estados_seq sigue avanzando y no choca con los bloques de Hibernate
+        jdbcTemplate.execute("TRUNCATE novedades, historial_ubicaciones, historial_estados, paquetes");
+        jdbcTemplate.update("""
+                INSERT INTO paquetes (id_paquete, codigo_paquete, remitente, destinatario, fecha_registro, destino,
+                                      id_estado_actual, id_cliente_remitente, id_cliente_destinatario)
+                SELECT n, 'PKG-SQL-' || n, 'Remitente ' || n, 'Destinatario ' || n, DATE '2025-01-01' + n % 300,
+                       (ARRAY['Bogotá', 'Medellín', 'Cali'])[1 + n % 3], 1 + n % 5, 1 + n % 50, 1 + n % 70
+                FROM generate_series(1, ?) n
+                """, paquetes);
+        jdbcTemplate.update("""
+                INSERT INTO historial_estados (id_paquete, id_estado, fecha_hora)
+                SELECT n, e, DATE '2025-01-01' + n % 300 + e
+                FROM generate_series(1, ?) n CROSS JOIN LATERAL (VALUES (1), (1 + n % 5)) AS etapas(e)
+                """, paquetes);
+        jdbcTemplate.update("""
+                INSERT INTO historial_ubicaciones (id_paquete, ubicacion, fecha_hora)
+                SELECT n, 'Ubicación ' || u, TIMESTAMPTZ '2025-01-01' + make_interval(hours => n + u)
+                FROM generate_series(1, ?) n CROSS JOIN generate_series(1, 2) u
+                """, paquetes);
+        jdbcTemplate.update("""
+                INSERT INTO novedades (id_paquete, tipo_novedad, descripcion, fecha_hora)
+                SELECT n, 'RETRASO', 'Novedad ' || n, DATE '2025-01-01' + n % 300
+                FROM generate_series(1, ?) n
+                """, paquetes);
+
+        // El paquete principal crece con el tamaño de la siembra
+        jdbcTemplate.update("""
+                INSERT INTO historial_estados (id_paquete, id_estado, fecha_hora)
+                SELECT ?, 1 + n % 5, DATE '2024-01-01' + n % 300 FROM generate_series(1, ?) n
+                """, ID_PAQUETE_PRINCIPAL, paquetes);
+        jdbcTemplate.update("""
+                INSERT INTO historial_ubicaciones (id_paquete, ubicacion, fecha_hora)
+                SELECT ?, 'Punto ' || n, TIMESTAMPTZ '2024-01-01' + make_interval(mins => n) FROM generate_series(1, ?) n
+                """, ID_PAQUETE_PRINCIPAL, paquetes);
+        jdbcTemplate.update("""
+                INSERT INTO novedades (id_paquete, tipo_novedad, descripcion, fecha_hora)
+                SELECT ?, 'REPROGRAMADO', 'Reintento ' || n, DATE '2024-01-01' + n % 300 FROM generate_series(1, ?) n
+                """, ID_PAQUETE_PRINCIPAL, paquetes);
+        // El paquete principal queda en tránsito para los endpoints de paquetes en ruta
+        jdbcTemplate.update("UPDATE paquetes SET id_estado_actual = ? WHERE id_paquete = ?", ID_EN_TRANSITO,
+                ID_PAQUETE_PRINCIPAL);
+
+        jdbcTemplate.execute("SELECT setval(pg_get_serial_sequence('paquetes', 'id_paquete'), " + paquetes + ")");
+        jdbcTemplate.execute("ANALYZE");
+        paquetesSembrados = paquetes;
+        vaciarCaches();
+    }
+
+    /** JWT firmado con el secreto de la aplicación, para POST, PUT y DELETE. */
+    protected String bearer(String... permisos) {
+        return "Bearer " + Jwts.builder()
+                .subject("presupuesto-sql")
+                .claim("role", "ADMIN")
+                .claim("permisos", List.of(permisos))
+                .expiration(Date.from(Instant.now().plus(Duration.ofHours(1))))
+                .signWith(Keys.hmacShaKeyFor(secreto.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+}
@@ -0,0 +1,95 @@
+package com.fabricaescuela.rendimiento;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import javax.sql.DataSource;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+/**
+ * Postgres de los benchmarks: el indicado con {@code -Dbenchmark.jdbc-url}
+ * ({@code benchmark.usuario}, {@code benchmark.clave}) o un contenedor de
+ * Testcontainers. Nunca la base configurada en la aplicación: sin ninguno de los
+ * dos el benchmark se omite, para no sembrar ni escribir datos en un entorno real.
+ */
+final class BaseDeBenchmark implements AutoCloseable {
+
+    private final String jdbcUrl;
+    private final String usuario;
+    private final String clave;
+    private final PostgreSQLContainer<?> contenedor;
+
+    private BaseDeBenchmark(String jdbcUrl, String usuario, String clave, PostgreSQLContainer<?> contenedor) {
+        this.jdbcUrl = jdbcUrl;
+        this.usuario = usuario;
+        this.clave = clave;
+        this.contenedor = contenedor;
+    }
+
+    /** @param comandoPostgres comando del contenedor, por ejemplo para subir {@code max_connections} */
+    static BaseDeBenchmark obtener(String... comandoPostgres) {
+        String jdbcUrl = System.getProperty("benchmark.jdbc-url");
+        if (jdbcUrl != null) {
+            return new BaseDeBenchmark(jdbcUrl, System.getProperty("benchmark.usuario", "postgres"),
+                    System.getProperty("benchmark.clave", "postgres"), null);
+        }
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(),
+                "Sin Docker: indique un Postgres local con -Dbenchmark.jdbc-url");
+        PostgreSQLContainer<?> contenedor = new PostgreSQLContainer<>("postgres:16-alpine");
+        if (comandoPostgres.length > 0) {
+            contenedor.withCommand(comandoPostgres);
+        }
+        contenedor.start();
+        return new BaseDeBenchmark(contenedor.getJdbcUrl(), contenedor.getUsername(), contenedor.getPassword(),
+                contenedor);
+    }
+
+    /** Argumentos de línea de comandos: le ganan a application.properties y a DATABASE_URL */
+    String[] argumentos() {
+        return new String[] {
+            "--spring.datasource.url=" + jdbcUrl,
+            "--spring.datasource.username=" + usuario,
+            "--spring.datasource.password=" + clave
+        };
+    }
+
+    /**
+     * Siembra {@code rendimiento/semilla-carga.sql} con {@code paquetes} paquetes
+     * (CARGA-00000001 en adelante), o reutiliza la semilla si ya tiene ese tamaño.
+     */
+    static void sembrar(DataSource dataSource, int paquetes) throws IOException {
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        Integer existentes = jdbc.queryForObject(
+                "SELECT count(*) FROM paquetes WHERE codigo_paquete LIKE 'CARGA-%'", Integer.class);
+        if (existentes != null && existentes == paquetes) {
+            System.out.printf("Semilla ya presente (%d paquetes), se reutiliza%n", paquetes);
+            return;
+        }
+        if (existentes != null && existentes > 0) {
+            throw new IllegalStateException("La base tiene " + existentes + " paquetes de carga y se pidieron "
+                    + paquetes + ": use una base vacía o el mismo benchmark.paquetes");
+        }
+
+        long inicio = System.nanoTime();
+        String script = new ClassPathResource("rendimiento/semilla-carga.sql")
+                .getContentAsString(StandardCharsets.UTF_8)
+                .replace("${paquetes}", Integer.toString(paquetes));
+        new ResourceDatabasePopulator(new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8))).execute(dataSource);
+        System.out.printf("Semilla de %d paquetes en %d s%n", paquetes, (System.nanoTime() - inicio) / 1_000_000_000);
+    }
+
+    @Override
+    public void close() {
+        if (contenedor != null) {
+            contenedor.stop();
+        }
+    }
+}
@@ -0,0 +1,359 @@
+package com.fabricaescuela.rendimiento;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fabricaescuela.InventarioApplication;
+
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+
+/**
+ * Prueba de carga extremo a extremo con datos de tamaño de producción.
+ * <p>
+ * Levanta la aplicación contra un Postgres local, siembra (una sola vez por base)
+ * millones de filas de paquetes, historiales, ubicaciones y novedades con
+ * {@code rendimiento/semilla-carga.sql}, y reparte durante un tiempo fijo una
+ * mezcla de peticiones de lectura y escritura sobre los controladores de paquetes,
+ * ubicaciones y novedades. El resultado por endpoint (peticiones/s y p50/p95/p99)
+ * queda en un archivo de texto sin fechas para poder compararlo entre commits.
+ * <p>
+ * Solo corre con {@code -Pbenchmark}. La base es un contenedor de Testcontainers o,
+ * sin Docker, la de {@code docker-compose.yml}:
+ * <pre>
+ * mvn test -Pbenchmark -Dtest=CargaExtremoAExtremoBenchmarkTest \
+ *     -Dbenchmark.jdbc-url=jdbc:postgresql://localhost:5432/inventario_db \
+ *     -Dbenchmark.usuario=inventario_user -Dbenchmark.clave=inventario_password
+ * </pre>
+ * Nunca usa la base configurada en la aplicación, para no sembrar datos en un
+ * entorno real. Parámetros: {@code benchmark.paquetes} (1 000 000),
+ * {@code benchmark.clientes} (200), {@code benchmark.segundos} (60),
+ * {@code benchmark.calentamiento} (15), {@code benchmark.semilla} (42) y
+ * {@code benchmark.reporte} (target/rendimiento/carga-e2e.txt).
+ */
+@Tag("benchmark")
+class CargaExtremoAExtremoBenchmarkTest {
+
+    private static final int PAQUETES = Integer.getInteger("benchmark.paquetes", 1_000_000);
+    private static final int CLIENTES = Integer.getInteger("benchmark.clientes", 200);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("benchmark.segundos", 60));
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(Long.getLong("benchmark.calentamiento", 15));
+    private static final long SEMILLA = Long.getLong("benchmark.semilla", 42);
+    private static final Path REPORTE = Path.of(System.getProperty("benchmark.reporte", "target/rendimiento/carga-e2e.txt"));
+
+    private static final String[] DESTINOS = {"Bogotá", "Medellín", "Cali", "Barranquilla", "Cartagena"};
+    private static final String[] TEXTOS = {"CARGA-0001", "Remitente 12", "Destinatario 345", "CARGA-00099"};
+
+    /**
+     * Operaciones de la mezcla, con su peso relativo. Los paquetes se eligen por su
+     * número en la semilla: número % 4 indica el estado actual (0 REGISTRADO,
+     * 1 EN_BODEGA, 2 En transito, 3 ENTREGADO).
+     * <p>
+     * Los GET de novedades no entran: exigen NOVEDAD_VIEW, pero JwtAuthenticationFilter
+     * no autentica ningún GET de /api/**, así que siempre responden 403.
+     */
+    private enum Operacion {
+        CONSULTAR_PAQUETE("GET /api/paquetes/{codigo}", 30),
+        CONSULTAR_EN_RUTA("GET /api/paquetes/en-ruta/{codigo}", 5),
+        ULTIMA_UBICACION("GET /api/paquetes/{codigo}/ubicaciones/ultima", 15),
+        HISTORIAL_UBICACIONES("GET /api/paquetes/{codigo}/ubicaciones", 5),
+        REGISTRAR_UBICACION("POST /api/paquetes/{codigo}/ubicaciones", 20),
+        ACTUALIZAR_ESTADO("PUT /api/paquetes/{codigo}/estado", 5),
+        BUSCAR("GET /api/paquetes/buscar", 6),
+        BUSCAR_TEXTO("GET /api/paquetes/buscar/texto", 4),
+        REGISTRAR_NOVEDAD("POST /api/novedades", 10);
+
+        private final String nombre;
+        private final int peso;
+
+        Operacion(String nombre, int peso) {
+            this.nombre = nombre;
+            this.peso = peso;
+        }
+    }
+
+    private static final Operacion[] RULETA = construirRuleta();
+
+    private record Medicion(long[][] latencias, long[] errores4xx, long[] errores5xx) {
+    }
+
+    @Test
+    void mezclaRealistaConDatosDeProduccion() throws Exception {
+        try (BaseDeBenchmark base = BaseDeBenchmark.obtener("postgres", "-c", "max_connections=300",
+                                                             "-c", "shared_buffers=512MB")) {
+            // Primer arranque: Flyway crea el esquema y se siembra; el segundo arranque
+            // precarga los índices en memoria con los datos ya sembrados, como en producción
+            try (ConfigurableApplicationContext app = iniciar(base)) {
+                BaseDeBenchmark.sembrar(app.getBean(DataSource.class), PAQUETES);
+            }
+            try (ConfigurableApplicationContext app = iniciar(base)) {
+                int[] idsPaquete = idsSembrados(app.getBean(JdbcTemplate.class));
+                int puerto = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                String token = generarToken(app.getEnvironment().getRequiredProperty("jwt.secret"));
+
+                Cliente cliente = new Cliente("http://localhost:" + puerto, token, idsPaquete);
+                cliente.cargar(CALENTAMIENTO, SEMILLA - 1);
+                long inicio = System.nanoTime();
+                Medicion medicion = cliente.cargar(DURACION, SEMILLA);
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+
+                String reporte = reportar(medicion, segundos);
+                Files.createDirectories(REPORTE.toAbsolutePath().getParent());
+                Files.writeString(REPORTE, reporte, StandardCharsets.UTF_8);
+                System.out.println(reporte);
+                System.out.println("Reporte: " + REPORTE.toAbsolutePath());
+
+                long total = Arrays.stream(medicion.latencias()).mapToLong(latencias -> latencias.length).sum();
+                assertTrue(total > 0, "la carga debe completar peticiones");
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext iniciar(BaseDeBenchmark base) {
+        // Como argumentos de línea de comandos: deben ganarle a application.properties
+        String[] argumentos = Stream.concat(Arrays.stream(base.argumentos()), Stream.of(
+                "--server.port=0",
+                "--spring.datasource.hikari.maximum-pool-size=" + Math.min(CLIENTES, 50),
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN")).toArray(String[]::new);
+        return new SpringApplicationBuilder(InventarioApplication.class).run(argumentos);
+    }
+
+    // idsPaquete[n - 1] es el ID del paquete CARGA-n
+    private static int[] idsSembrados(JdbcTemplate jdbc) {
+        return jdbc.queryForList("SELECT id_paquete FROM paquetes WHERE codigo_paquete LIKE 'CARGA-%' "
+                + "ORDER BY codigo_paquete", Integer.class).stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String generarToken(String secreto) {
+        return Jwts.builder()
+                .subject("benchmark-carga")
+                .claim("role", "ADMIN")
+                .claim("permisos", List.of("NOVEDAD_CREATE", "NOVEDAD_VIEW"))
+                .expiration(Date.from(Instant.now().plus(Duration.ofDays(1))))
+                .signWith(Keys.hmacShaKeyFor(secreto.getBytes(StandardCharsets.UTF_8)))
+                .compact();
+    }
+
+    private static String reportar(Medicion medicion, double segundos) {
+        StringBuilder reporte = new StringBuilder();
+        reporte.append(String.format("# Carga extremo a extremo: %d paquetes, %d clientes, %d s, semilla %d%n",
+                PAQUETES, CLIENTES, DURACION.toSeconds(), SEMILLA));
+        reporte.append(String.format("%-48s %10s %8s %8s %12s %9s %9s %9s%n",
+                "endpoint", "peticiones", "4xx", "5xx", "peticiones/s", "p50 ms", "p95 ms", "p99 ms"));
+        long total = 0;
+        for (Operacion operacion : Operacion.values()) {
+            long[] latencias = medicion.latencias()[operacion.ordinal()];
+            Arrays.sort(latencias);
+            total += latencias.length;
+            reporte.append(String.format("%-48s %10d %8d %8d %12.1f %9.2f %9.2f %9.2f%n",
+                    operacion.nombre, latencias.length,
+                    medicion.errores4xx()[operacion.ordinal()], medicion.errores5xx()[operacion.ordinal()],
+                    latencias.length / segundos,
+                    percentil(latencias, 0.50), percentil(latencias, 0.95), percentil(latencias, 0.99)));
+        }
+        reporte.append(String.format("%-48s %10d %8s %8s %12.1f%n", "total", total, "", "", total / segundos));
+        return reporte.toString();
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        if (ordenadas.length == 0) {
+            return 0;
+        }
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(i, 0)] / 1e6;
+    }
+
+    private static Operacion[] construirRuleta() {
+        List<Operacion> ruleta = new ArrayList<>();
+        for (Operacion operacion : Operacion.values()) {
+            for (int i = 0; i < operacion.peso; i++) {
+                ruleta.add(operacion);
+            }
+        }
+        return ruleta.toArray(Operacion[]::new);
+    }
+
+    /**
+     * Generador de carga: cada cliente es un hilo virtual con su propio
+     * {@link SplittableRandom} derivado de la semilla, así que la secuencia de
+     * peticiones de cada cliente se repite entre corridas.
+     */
+    private static final class Cliente {
+
+        private final String base;
+        private final String token;
+        private final int[] idsPaquete;
+
+        private Cliente(String base, String token, int[] idsPaquete) {
+            this.base = base;
+            this.token = token;
+            this.idsPaquete = idsPaquete;
+        }
+
+        Medicion cargar(Duration duracion, long semilla) throws Exception {
+            long fin = System.nanoTime() + duracion.toNanos();
+            int operaciones = Operacion.values().length;
+            try (ExecutorService hilos = Executors.newVirtualThreadPerTaskExecutor();
+                 HttpClient http = HttpClient.newBuilder()
+                         .version(HttpClient.Version.HTTP_1_1)
+                         .executor(hilos)
+                         .build()) {
+                List<Future<Medicion>> clientes = new ArrayList<>(CLIENTES);
+                SplittableRandom raiz = new SplittableRandom(semilla);
+                for (int c = 0; c < CLIENTES; c++) {
+                    SplittableRandom aleatorio = raiz.split();
+                    clientes.add(hilos.submit(() -> ejecutar(http, aleatorio, fin)));
+                }
+
+                long[][] latencias = new long[operaciones][0];
+                long[] errores4xx = new long[operaciones];
+                long[] errores5xx = new long[operaciones];
+                for (Future<Medicion> cliente : clientes) {
+                    Medicion parcial = cliente.get();
+                    for (int o = 0; o < operaciones; o++) {
+                        latencias[o] = concatenar(latencias[o], parcial.latencias()[o]);
+                        errores4xx[o] += parcial.errores4xx()[o];
+                        errores5xx[o] += parcial.errores5xx()[o];
+                    }
+                }
+                return new Medicion(latencias, errores4xx, errores5xx);
+            }
+        }
+
+        private Medicion ejecutar(HttpClient http, SplittableRandom aleatorio, long fin) {
+            int operaciones = Operacion.values().length;
+            long[][] latencias = new long[operaciones][256];
+            int[] cantidades = new int[operaciones];
+            long[] errores4xx = new long[operaciones];
+            long[] errores5xx = new long[operaciones];
+
+            while (System.nanoTime() < fin) {
+                Operacion operacion = RULETA[aleatorio.nextInt(RULETA.length)];
+                HttpRequest peticion = construir(operacion, aleatorio);
+                int o = operacion.ordinal();
+                long t0 = System.nanoTime();
+                int estado;
+                try {
+                    estado = http.send(peticion, HttpResponse.BodyHandlers.discarding()).statusCode();
+                } catch (IOException e) {
+                    estado = 599;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                long latencia = System.nanoTime() - t0;
+
+                if (estado >= 500) {
+                    errores5xx[o]++;
+                    continue;
+                }
+                if (estado >= 400 && estado != 404) {
+                    errores4xx[o]++;
+                }
+                if (cantidades[o] == latencias[o].length) {
+                    latencias[o] = Arrays.copyOf(latencias[o], cantidades[o] * 2);
+                }
+                latencias[o][cantidades[o]++] = latencia;
+            }
+
+            for (int o = 0; o < operaciones; o++) {
+                latencias[o] = Arrays.copyOf(latencias[o], cantidades[o]);
+            }
+            return new Medicion(latencias, errores4xx, errores5xx);
+        }
+
+        private HttpRequest construir(Operacion operacion, SplittableRandom aleatorio) {
+            return switch (operacion) {
+                case CONSULTAR_PAQUETE -> get("/api/paquetes/" + codigo(paquete(aleatorio, -1)));
+                case CONSULTAR_EN_RUTA -> get("/api/paquetes/en-ruta/" + codigo(paquete(aleatorio, 2)));
+                case ULTIMA_UBICACION -> get("/api/paquetes/" + codigo(paquete(aleatorio, -1)) + "/ubicaciones/ultima");
+                case HISTORIAL_UBICACIONES -> get("/api/paquetes/" + codigo(paquete(aleatorio, -1)) + "/ubicaciones");
+                case REGISTRAR_UBICACION -> autenticada("/api/paquetes/" + codigo(paquete(aleatorio, 2)) + "/ubicaciones")
+                        .POST(json("{\"ubicacion\":\"" + (4 + aleatorio.nextDouble()) + "," + (-74 - aleatorio.nextDouble()) + "\"}"))
+                        .build();
+                // Re-registra EN_BODEGA en paquetes que ya están en bodega: no altera la mezcla de estados
+                case ACTUALIZAR_ESTADO -> autenticada("/api/paquetes/" + codigo(paquete(aleatorio, 1)) + "/estado?nuevoEstado=EN_BODEGA")
+                        .PUT(HttpRequest.BodyPublishers.noBody())
+                        .build();
+                case BUSCAR -> get("/api/paquetes/buscar?destino=" + encode(DESTINOS[aleatorio.nextInt(DESTINOS.length)])
+                        + "&nombreEstado=ENTREGADO&page=" + aleatorio.nextInt(5) + "&size=20");
+                case BUSCAR_TEXTO -> get("/api/paquetes/buscar/texto?q=" + encode(TEXTOS[aleatorio.nextInt(TEXTOS.length)]));
+                // Solo paquetes en tránsito admiten novedades
+                case REGISTRAR_NOVEDAD -> autenticada("/api/novedades")
+                        .POST(json("{\"idPaquete\":" + idsPaquete[paquete(aleatorio, 2) - 1]
+                                + ",\"tipoNovedad\":\"RETRASO\",\"descripcion\":\"Novedad de benchmark\",\"fechaHora\":\""
+                                + LocalDate.now() + "\"}"))
+                        .build();
+            };
+        }
+
+        // Número de paquete (1..PAQUETES); con estado >= 0 solo los que tienen ese estado actual
+        private int paquete(SplittableRandom aleatorio, int estado) {
+            int numero = 1 + aleatorio.nextInt(idsPaquete.length);
+            if (estado < 0) {
+                return numero;
+            }
+            int ajustado = numero - (numero % 4) + estado;
+            return ajustado >= 1 && ajustado <= idsPaquete.length ? ajustado : 4 + estado;
+        }
+
+        private static String codigo(int numero) {
+            return String.format("CARGA-%08d", numero);
+        }
+
+        private HttpRequest get(String ruta) {
+            return HttpRequest.newBuilder(URI.create(base + ruta)).timeout(Duration.ofSeconds(30)).GET().build();
+        }
+
+        private HttpRequest.Builder autenticada(String ruta) {
+            return HttpRequest.newBuilder(URI.create(base + ruta))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Authorization", "Bearer " + token)
+                    .header("Content-Type", "application/json");
+        }
+
+        private static HttpRequest.BodyPublisher json(String cuerpo) {
+            return HttpRequest.BodyPublishers.ofString(cuerpo);
+        }
+
+        private static String encode(String valor) {
+            return URLEncoder.encode(valor, StandardCharsets.UTF_8);
+        }
+
+        private static long[] concatenar(long[] a, long[] b) {
+            long[] resultado = Arrays.copyOf(a, a.length + b.length);
+            System.arraycopy(b, 0, resultado, a.length, b.length);
+            return resultado;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.fabricaescuela.rendimiento;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.fabricaescuela.InventarioApplication;
+
+/**
+ * Compara GET /api/paquetes/{codigo} con hilos de plataforma (Tomcat por defecto,
+ * 200 hilos) y con el perfil {@code hilos-virtuales}, levantando la aplicación
+ * dos veces contra la misma base.
+ * <p>
+ * La base es un contenedor de Testcontainers o el Postgres de
+ * {@code -Dbenchmark.jdbc-url} (ver {@link BaseDeBenchmark}), sembrado con
+ * {@code benchmark.paquetes} paquetes (10 000). Cada petición pide un código al
+ * azar y la caché de paquetes está apagada, así que todas llegan a la base: lo que
+ * se compara es cuántas consultas bloqueantes en vuelo sostiene cada modelo de hilos.
+ * <p>
+ * Solo corre con {@code mvn test -Pbenchmark}. Los números son representativos
+ * cuando la base está en otra máquina (como en Render): contra un Postgres local
+ * la latencia de red desaparece y ambos modos quedan limitados por el pool.
+ * <p>
+ * Parámetros: {@code -Dbenchmark.clientes=1000 -Dbenchmark.segundos=20 -Dbenchmark.calentamiento=5}
+ */
+@Tag("benchmark")
+class HilosVirtualesBenchmarkTest {
+
+    private static final int PAQUETES = Integer.getInteger("benchmark.paquetes", 10_000);
+    private static final int CLIENTES = Integer.getInteger("benchmark.clientes", 1000);
+    private static final Duration DURACION = Duration.ofSeconds(Long.getLong("benchmark.segundos", 20));
+    private static final Duration CALENTAMIENTO = Duration.ofSeconds(Long.getLong("benchmark.calentamiento", 5));
+
+    private record Resultado(String modo, long peticiones, long errores, double porSegundo, double p50Ms, double p99Ms) {
+
+        @Override
+        public String toString() {
+            return String.format("%-18s %10d %8d %12.0f %10.2f %10.2f", modo, peticiones, errores, porSegundo, p50Ms, p99Ms);
+        }
+    }
+
+    @Test
+    void plataformaContraVirtuales() throws Exception {
+        Resultado plataforma;
+        Resultado virtuales;
+        try (BaseDeBenchmark base = BaseDeBenchmark.obtener()) {
+            plataforma = medir(base, false);
+            virtuales = medir(base, true);
+        }
+
+        System.out.printf("%nGET /api/paquetes/{codigo} con %d clientes concurrentes durante %ds%n",
+                CLIENTES, DURACION.toSeconds());
+        System.out.printf("%-18s %10s %8s %12s %10s %10s%n", "modo", "peticiones", "errores", "peticiones/s", "p50 ms", "p99 ms");
+        System.out.println(plataforma);
+        System.out.println(virtuales);
+
+        assertTrue(plataforma.peticiones() > 0 && virtuales.peticiones() > 0, "ambos modos deben atender peticiones");
+    }
+
+    private Resultado medir(BaseDeBenchmark base, boolean hilosVirtuales) throws Exception {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(InventarioApplication.class);
+        if (hilosVirtuales) {
+            builder.profiles("hilos-virtuales");
+        }
+
+        // Como argumentos de línea de comandos: deben ganarle a application.properties.
+        // Caché con TTL 0: cada GET consulta la base en lugar de medir un acierto en memoria
+        String[] argumentos = Stream.concat(Arrays.stream(base.argumentos()), Stream.of(
+                "--server.port=0",
+                "--inventario.cache.paquetes.ttl=0s",
+                "--spring.jpa.show-sql=false",
+                "--logging.level.root=WARN")).toArray(String[]::new);
+        try (ConfigurableApplicationContext app = builder.run(argumentos)) {
+            BaseDeBenchmark.sembrar(app.getBean(DataSource.class), PAQUETES);
+            int puerto = app.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+            String url = "http://localhost:" + puerto + "/api/paquetes/";
+            cargar(url, CALENTAMIENTO, null, new AtomicLong());
+            List<long[]> latencias = new ArrayList<>();
+            AtomicLong errores = new AtomicLong();
+            long inicio = System.nanoTime();
+            cargar(url, DURACION, latencias, errores);
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+            return resumir(hilosVirtuales ? "hilos-virtuales" : "hilos-plataforma", latencias, errores.get(), segundos);
+        }
+    }
+
+    // Cada cliente es un hilo virtual que repite la petición hasta el plazo y guarda sus latencias
+    private void cargar(String base, Duration duracion, List<long[]> latencias, AtomicLong errores) throws Exception {
+        long fin = System.nanoTime() + duracion.toNanos();
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient http = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .executor(clientes)
+                     .build()) {
+            List<Future<long[]>> tareas = new ArrayList<>(CLIENTES);
+            for (int i = 0; i < CLIENTES; i++) {
+                tareas.add(clientes.submit(() -> {
+                    long[] propias = new long[1024];
+                    int n = 0;
+                    while (System.nanoTime() < fin) {
+                        String codigo = String.format("CARGA-%08d", 1 + ThreadLocalRandom.current().nextInt(PAQUETES));
+                        HttpRequest peticion = HttpRequest.newBuilder(URI.create(base + codigo))
+                                .timeout(Duration.ofSeconds(30)).GET().build();
+                        long t0 = System.nanoTime();
+                        try {
+                            HttpResponse<Void> respuesta = http.send(peticion, HttpResponse.BodyHandlers.discarding());
+                            if (respuesta.statusCode() != 200) {
+                                errores.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errores.incrementAndGet();
+                            continue;
+                        }
+                        if (n == propias.length) {
+                            propias = Arrays.copyOf(propias, n * 2);
+                        }
+                        propias[n++] = System.nanoTime() - t0;
+                    }
+                    return Arrays.copyOf(propias, n);
+                }));
+            }
+            for (Future<long[]> tarea : tareas) {
+                long[] propias = tarea.get();
+                if (latencias != null) {
+                    latencias.add(propias);
+                }
+            }
+        }
+    }
+
+    private static Resultado resumir(String modo, List<long[]> latencias, long errores, double segundos) {
+        long[] todas = latencias.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        if (todas.length == 0) {
+            return new Resultado(modo, 0, errores, 0, 0, 0);
+        }
+        return new Resultado(modo, todas.length, errores, todas.length / segundos,
+                percentil(todas, 0.50), percentil(todas, 0.99));
+    }
+
+    private static double percentil(long[] ordenadas, double p) {
+        int i = (int) Math.ceil(p * ordenadas.length) - 1;
+        return ordenadas[Math.max(i, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,437 @@
+package com.fabricaescuela.repository;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import com.fabricaescuela.models.entity.Estado;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+
+/**
+ * Plan de ejecución de cada consulta de los repositorios de paquetes, historiales
+ * y novedades sobre una base sembrada con {@code rendimiento/semilla-carga.sql}.
+ * <p>
+ * Cada caso invoca el método del repositorio (en una transacción que se revierte),
+ * captura el SQL que Hibernate envió con sus parámetros y ejecuta
+ * {@code EXPLAIN (COSTS OFF)} con esos mismos valores. Falla si:
+ * <ul>
+ *   <li>el plan recorre completa una tabla grande ({@code Seq Scan}) y el caso no lo
+ *       declara como esperado, o</li>
+ *   <li>la forma del plan (nodos, índices y tablas, sin condiciones ni costos) no
+ *       coincide con la instantánea en {@code src/test/resources/planes/}.</li>
+ * </ul>
+ * Para aceptar un plan nuevo o cambiado se regeneran las instantáneas y se revisa el
+ * diff antes de confirmarlo:
+ *
+ * <pre>
+ * mvn test -Dtest=PlanesConsultasTest -Dplanes.actualizar=true
+ * </pre>
+ *
+ * Sin Docker se puede usar un Postgres local vacío (la prueba siembra sus datos):
+ *
+ * <pre>
+ * mvn test -Dtest=PlanesConsultasTest \
+ *     -Dplanes.jdbc-url=jdbc:postgresql://localhost:5432/planes -Dplanes.usuario=postgres -Dplanes.clave=postgres
+ * </pre>
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@EnabledIf("baseDeDatosDisponible")
+class PlanesConsultasTest {
+
+    // Con menos de 300.000 filas por tabla, ANALYZE con estadísticas 1000 lee todas
+    // las filas y las estadísticas (y por lo tanto los planes) no varían entre corridas
+    private static final int PAQUETES = 25_000;
+    private static final Set<String> TABLAS_GRANDES =
+            Set.of("paquetes", "historial_estados", "historial_ubicaciones", "novedades");
+
+    private static final Path INSTANTANEAS = Path.of("src", "test", "resources", "planes");
+    private static final boolean ACTUALIZAR = Boolean.getBoolean("planes.actualizar");
+    private static final String JDBC_URL = System.getProperty("planes.jdbc-url");
+
+    private static final Pattern RECORRIDO_COMPLETO = Pattern.compile("Seq Scan on (\\w+)");
+    private static final Pattern COMENTARIO_SQL = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL);
+
+    private static PostgreSQLContainer<?> postgres;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private PaqueteRepository paqueteRepository;
+
+    @Autowired
+    private HistorialEstadoRepository historialEstadoRepository;
+
+    @Autowired
+    private HistorialUbicacionRepository historialUbicacionRepository;
+
+    @Autowired
+    private NovedadRepository novedadRepository;
+
+    private final CapturaSql captura = new CapturaSql();
+    private JdbcTemplate jdbcTemplate;
+
+    static boolean baseDeDatosDisponible() {
+        return JDBC_URL != null || DockerClientFactory.instance().isDockerAvailable();
+    }
+
+    @DynamicPropertySource
+    static void baseDeDatos(DynamicPropertyRegistry registro) {
+        if (JDBC_URL != null) {
+            registro.add("spring.datasource.url", () -> JDBC_URL);
+            registro.add("spring.datasource.username", () -> System.getProperty("planes.usuario", "postgres"));
+            registro.add("spring.datasource.password", () -> System.getProperty("planes.clave", "postgres"));
+            return;
+        }
+        if (postgres == null) {
+            postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+            postgres.start();
+        }
+        registro.add("spring.datasource.url", postgres::getJdbcUrl);
+        registro.add("spring.datasource.username", postgres::getUsername);
+        registro.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @BeforeAll
+    void sembrar() throws IOException {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        assertTrue(dataSource instanceof ProxyDataSource,
+                "Se necesita el DataSource con datasource-proxy (inventario.metricas.jdbc.habilitada=true)");
+        ((ProxyDataSource) dataSource).getProxyConfig().getQueryListener().addListener(captura);
+
+        Integer existentes = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM paquetes WHERE codigo_paquete LIKE 'CARGA-%'", Integer.class);
+        if (existentes == 0) {
+            String script = new ClassPathResource("rendimiento/semilla-carga.sql")
+                    .getContentAsString(StandardCharsets.UTF_8)
+                    .replace("${paquetes}", Integer.toString(PAQUETES));
+            new ResourceDatabasePopulator(new ByteArrayResource(script.getBytes(StandardCharsets.UTF_8)))
+                    .execute(dataSource);
+        } else {
+            assertEquals(PAQUETES, existentes, "La base ya tiene otra semilla de carga: use una base vacía");
+        }
+        // VACUUM además de ANALYZE: en una base recién sembrada el mapa de visibilidad está
+        // vacío hasta que pasa el autovacuum, y eso cambia el costo de los index-only scans
+        jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+            try (Statement sentencia = conexion.createStatement()) {
+                sentencia.execute("SET default_statistics_target = 1000");
+                sentencia.execute("VACUUM ANALYZE paquetes, historial_estados, historial_ubicaciones, novedades, estados");
+                sentencia.execute("RESET default_statistics_target");
+            }
+            return null;
+        });
+    }
+
+    @TestFactory
+    Stream<DynamicTest> planes() {
+        int idPaquete = idDe(1234);
+        int idIntermedio = idDe(12_000);
+        List<Integer> idsPaquete = IntStream.rangeClosed(2001, 2100).mapToObj(this::idDe).toList();
+        List<String> codigos = IntStream.rangeClosed(3001, 3100).mapToObj(PlanesConsultasTest::codigo).toList();
+        Integer idEstado = jdbcTemplate.queryForObject(
+                "SELECT min(id_estado) FROM estados WHERE nombre_estado = 'En transito'", Integer.class);
+        Integer idHistorial = jdbcTemplate.queryForObject(
+                "SELECT min(id_historia_estadol) FROM historial_estados WHERE id_paquete = ?", Integer.class, idPaquete);
+        Integer idNovedad = jdbcTemplate.queryForObject("SELECT max(id_novedad) FROM novedades", Integer.class);
+        Instant ahora = Instant.parse("2025-06-01T00:00:00Z");
+
+        List<Caso> casos = List.of(
+                // PaqueteRepository
+                caso("PaqueteRepository.findByCodigoPaquete", () -> paqueteRepository.findByCodigoPaquete(codigo(1234))),
+                caso("PaqueteRepository.findIdByCodigoPaquete", () -> paqueteRepository.findIdByCodigoPaquete(codigo(1234))),
+                caso("PaqueteRepository.findParaActualizar", () -> paqueteRepository.findParaActualizar(idPaquete)),
+                caso("PaqueteRepository.findVersionById", () -> paqueteRepository.findVersionById(idPaquete)),
+                caso("PaqueteRepository.findVersionConUbicacionesById",
+                        () -> paqueteRepository.findVersionConUbicacionesById(idPaquete)),
+                caso("PaqueteRepository.marcarModificado", () -> paqueteRepository.marcarModificado(idPaquete, ahora)),
+                caso("PaqueteRepository.marcarModificados", () -> paqueteRepository.marcarModificados(idsPaquete, ahora)),
+                caso("PaqueteRepository.findIdsPorCodigos", () -> paqueteRepository.findIdsPorCodigos(codigos)),
+                caso("PaqueteRepository.actualizarEstadoActual",
+                        () -> paqueteRepository.actualizarEstadoActual(idsPaquete, estado(idEstado), LocalDate.of(2024, 6, 1),
+                                ahora)),
+                caso("PaqueteRepository.marcarModificadosConHistorialPosterior",
+                        () -> paqueteRepository.marcarModificadosConHistorialPosterior(idsPaquete, LocalDate.of(2024, 6, 1),
+                                ahora)),
+                caso("PaqueteRepository.findResumenesDespuesDe",
+                        () -> paqueteRepository.findResumenesDespuesDe(idIntermedio, Limit.of(51))),
+                caso("PaqueteRepository.findByFechaRegistro",
+                        () -> paqueteRepository.findByFechaRegistro(LocalDate.of(2024, 6, 1))),
+                caso("PaqueteRepository.findPaquetesEnTransito",
+                        () -> paqueteRepository.findPaquetesEnTransito(List.of(idEstado), 0, 51)),
+                caso("PaqueteRepository.isPaqueteEnTransito",
+                        () -> paqueteRepository.isPaqueteEnTransito(idPaquete, List.of(idEstado))),
+                // Sin prefijos que llenen la página: también recorre los índices de similitud
+                caso("PaqueteRepository.buscarPorTexto",
+                        () -> paqueteRepository.buscarPorTexto("1234", "%1234%", "1234%", 21, PageRequest.of(0, 20))),
+                caso("PaqueteRepository.buscarPorTexto.porPrefijo",
+                        () -> paqueteRepository.buscarPorTexto("remitente 12", "%remitente 12%", "remitente 12%", 21,
+                                PageRequest.of(0, 20))),
+                caso("PaqueteRepository.streamParaExportar", () -> {
+                    try (Stream<?> filas = paqueteRepository.streamParaExportar(
+                            LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), null)) {
+                        return filas.findFirst();
+                    }
+                }),
+                caso("PaqueteRepository.streamParaExportar.porEstado", () -> {
+                    try (Stream<?> filas = paqueteRepository.streamParaExportar(
+                            LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), List.of(idEstado))) {
+                        return filas.findFirst();
+                    }
+                }),
+                // Recalcula todos los paquetes: recorrerlos completos es lo esperado
+                caso("PaqueteRepository.recalcularEstadoActualDesdeHistorial",
+                        () -> paqueteRepository.recalcularEstadoActualDesdeHistorial(),
+                        "paquetes", "historial_estados"),
+
+                // HistorialEstadoRepository
+                caso("HistorialEstadoRepository.findById", () -> historialEstadoRepository.findById(idHistorial)),
+                caso("HistorialEstadoRepository.findByIdPaquete_Id",
+                        () -> historialEstadoRepository.findByIdPaquete_Id(idPaquete)),
+                caso("HistorialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc",
+                        () -> historialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc(idPaquete)),
+                caso("HistorialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDescOrdenRegistroDesc",
+                        () -> historialEstadoRepository.findTopByIdPaquete_IdOrderByFechaHoraDescOrdenRegistroDesc(idPaquete)),
+                caso("HistorialEstadoRepository.findIdPaqueteById",
+                        () -> historialEstadoRepository.findIdPaqueteById(idHistorial)),
+                caso("HistorialEstadoRepository.findByIdGreaterThanOrderByIdAsc",
+                        () -> historialEstadoRepository.findByIdGreaterThanOrderByIdAsc(idHistorial, Limit.of(51))),
+
+                // HistorialUbicacionRepository
+                caso("HistorialUbicacionRepository.findByIdPaquete_IdOrderByFechaHoraDesc",
+                        () -> historialUbicacionRepository.findByIdPaquete_IdOrderByFechaHoraDesc(idPaquete)),
+                caso("HistorialUbicacionRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc",
+                        () -> historialUbicacionRepository.findTopByIdPaquete_IdOrderByFechaHoraDesc(idPaquete)),
+
+                // NovedadRepository
+                caso("NovedadRepository.findById", () -> novedadRepository.findById(idNovedad)),
+                caso("NovedadRepository.findByIdPaquete_Id", () -> novedadRepository.findByIdPaquete_Id(idPaquete)),
+                caso("NovedadRepository.findByIdGreaterThanOrderByIdAsc",
+                        () -> novedadRepository.findByIdGreaterThanOrderByIdAsc(0, Limit.of(51))));
+
+        return casos.stream().map(caso -> DynamicTest.dynamicTest(caso.nombre(), () -> verificar(caso)));
+    }
+
+    private void verificar(Caso caso) throws Exception {
+        List<SentenciaCapturada> sentencias = capturar(caso);
+        assertFalse(sentencias.isEmpty(), caso.nombre() + " no ejecutó ninguna sentencia");
+
+        StringBuilder plan = new StringBuilder();
+        for (SentenciaCapturada sentencia : sentencias) {
+            String explicado = explicar(sentencia);
+            Matcher recorrido = RECORRIDO_COMPLETO.matcher(explicado);
+            while (recorrido.find()) {
+                String tabla = recorrido.group(1);
+                if (TABLAS_GRANDES.contains(tabla) && !caso.recorridosEsperados().contains(tabla)) {
+                    fail(caso.nombre() + " recorre completa la tabla " + tabla + ":\n" + explicado);
+                }
+            }
+            plan.append("-- ").append(normalizarSql(sentencia.sql())).append('\n')
+                .append(forma(explicado)).append('\n');
+        }
+
+        Path instantanea = INSTANTANEAS.resolve(caso.nombre() + ".plan");
+        if (ACTUALIZAR || !Files.exists(instantanea)) {
+            Files.createDirectories(INSTANTANEAS);
+            Files.writeString(instantanea, plan.toString(), StandardCharsets.UTF_8);
+            assertTrue(ACTUALIZAR, "Instantánea nueva en " + instantanea + ": revísela y confírmela");
+            return;
+        }
+        assertEquals(Files.readString(instantanea, StandardCharsets.UTF_8), plan.toString(),
+                () -> "El plan de " + caso.nombre() + " cambió. Si el cambio es esperado, regenere las instantáneas "
+                        + "con -Dplanes.actualizar=true y revise el diff");
+    }
+
+    // Ejecuta el caso en una transacción que se revierte y devuelve las sentencias que envió
+    private List<SentenciaCapturada> capturar(Caso caso) {
+        TransactionTemplate transaccion = new TransactionTemplate(transactionManager);
+        return transaccion.execute(estado -> {
+            estado.setRollbackOnly();
+            captura.iniciar();
+            try {
+                caso.consulta().ejecutar();
+            } catch (Exception e) {
+                throw new IllegalStateException(caso.nombre() + " falló", e);
+            } finally {
+                captura.detener();
+            }
+            return captura.sentencias();
+        });
+    }
+
+    private String explicar(SentenciaCapturada sentencia) throws SQLException, ReflectiveOperationException {
+        try (Connection conexion = dataSource.getConnection()) {
+            try (Statement configuracion = conexion.createStatement()) {
+                // Sin workers paralelos: el plan no depende de los núcleos de la máquina
+                configuracion.execute("SET max_parallel_workers_per_gather = 0");
+            }
+            try (PreparedStatement explain = conexion.prepareStatement("EXPLAIN (COSTS OFF) " + sentencia.sql())) {
+                for (ParameterSetOperation parametro : sentencia.parametros()) {
+                    try {
+                        parametro.getMethod().invoke(explain, parametro.getArgs());
+                    } catch (InvocationTargetException e) {
+                        if (e.getCause() instanceof SQLException sql) {
+                            throw sql;
+                        }
+                        throw e;
+                    }
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet filas = explain.executeQuery()) {
+                    while (filas.next()) {
+                        plan.append(filas.getString(1)).append('\n');
+                    }
+                }
+                return plan.toString();
+            } finally {
+                try (Statement configuracion = conexion.createStatement()) {
+                    configuracion.execute("RESET max_parallel_workers_per_gather");
+                }
+            }
+        }
+    }
+
+    /**
+     * Solo los nodos del plan (tipo, índice y tabla) con su anidamiento. Las
+     * condiciones llevan los valores de los parámetros y cambiarían en cada corrida.
+     */
+    static String forma(String plan) {
+        StringBuilder forma = new StringBuilder();
+        boolean primera = true;
+        for (String linea : plan.split("\n")) {
+            String sinFlecha = linea.replace("->  ", "");
+            String nodo = sinFlecha.strip();
+            // Los nodos hijos empiezan con "->" (una condición puede contener el operador <->)
+            boolean esNodo = primera || linea.stripLeading().startsWith("->")
+                    || nodo.startsWith("SubPlan") || nodo.startsWith("InitPlan") || nodo.startsWith("CTE ");
+            if (esNodo) {
+                forma.append(sinFlecha.stripTrailing()).append('\n');
+            }
+            primera = false;
+        }
+        return forma.toString();
+    }
+
+    private static String normalizarSql(String sql) {
+        return COMENTARIO_SQL.matcher(sql).replaceAll("").replaceAll("\\s+", " ").strip();
+    }
+
+    private static String codigo(int numero) {
+        return String.format("CARGA-%08d", numero);
+    }
+
+    private int idDe(int numero) {
+        return jdbcTemplate.queryForObject("SELECT id_paquete FROM paquetes WHERE codigo_paquete = ?", Integer.class,
+                codigo(numero));
+    }
+
+    private static Estado estado(Integer id) {
+        Estado estado = new Estado();
+        estado.setId(id);
+        return estado;
+    }
+
+    private static Caso caso(String nombre, Consulta consulta, String... recorridosEsperados) {
+        return new Caso(nombre, consulta, Set.of(recorridosEsperados));
+    }
+
+    @FunctionalInterface
+    interface Consulta {
+        Object ejecutar() throws Exception;
+    }
+
+    record Caso(String nombre, Consulta consulta, Set<String> recorridosEsperados) {
+    }
+
+    record SentenciaCapturada(String sql, List<ParameterSetOperation> parametros) {
+    }
+
+    /** Guarda las sentencias que ejecuta el hilo de la prueba mientras la captura está activa. */
+    private static final class CapturaSql implements QueryExecutionListener {
+
+        private volatile Thread hilo;
+        private final List<SentenciaCapturada> sentencias = new ArrayList<>();
+
+        void iniciar() {
+            sentencias.clear();
+            hilo = Thread.currentThread();
+        }
+
+        void detener() {
+            hilo = null;
+        }
+
+        List<SentenciaCapturada> sentencias() {
+            return List.copyOf(sentencias);
+        }
+
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (Thread.currentThread() != hilo) {
+                return;
+            }
+            for (QueryInfo consulta : queryInfoList) {
+                List<ParameterSetOperation> parametros = consulta.getParametersList().isEmpty()
+                        ? List.of()
+                        : List.copyOf(consulta.getParametersList().get(0));
+                sentencias.add(new SentenciaCapturada(consulta.getQuery(), parametros));
+            }
+        }
+    }
+}
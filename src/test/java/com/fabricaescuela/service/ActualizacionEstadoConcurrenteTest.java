@@ -0,0 +1,244 @@
+package com.fabricaescuela.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import com.fabricaescuela.models.entity.Estado;
+import com.fabricaescuela.models.entity.HistorialEstado;
+import com.fabricaescuela.models.entity.Paquete;
+import com.fabricaescuela.repository.HistorialEstadoRepository;
+import com.fabricaescuela.repository.PaqueteRepository;
+
+/**
+ * Varios escáneres cambian el estado del mismo paquete a la vez, con los
+ * reintentos de la configuración por defecto: cada cambio confirmado queda
+ * exactamente una vez en el historial e incrementa la versión en uno, los que
+ * agotan los reintentos responden 409 con la versión vigente y no dejan rastro,
+ * y el estado actual es el del último registro confirmado. Si los reintentos
+ * alcanzan para todos los escáneres, confirman todos.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+class ActualizacionEstadoConcurrenteTest {
+
+    private static final int TRANSICIONES = 12;
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private PaqueteService paqueteService;
+
+    @Autowired
+    private EstadoService estadoService;
+
+    @Autowired
+    private PaqueteRepository paqueteRepository;
+
+    @Autowired
+    private HistorialEstadoRepository historialEstadoRepository;
+
+    @Autowired
+    private HistorialEstadoService historialEstadoService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${inventario.concurrencia.intentos}")
+    private int intentosMaximos;
+
+    @Test
+    void transicionesSimultaneasQuedanTodasEnElHistorial() throws Exception {
+        crearEstado("EN_BODEGA");
+        crearEstado("EN_RUTA");
+        Paquete paquete = crearPaquete();
+
+        Transiciones resultado = transicionarALaVez(paquete, TRANSICIONES, "EN_RUTA", "EN_BODEGA");
+        int confirmados = resultado.confirmados();
+        List<ConflictoVersionException> conflictos = resultado.conflictos();
+
+        assertTrue(confirmados > 0, "al menos un cambio debe confirmar");
+        Paquete actualizado = paqueteRepository.findById(paquete.getId()).orElseThrow();
+        for (ConflictoVersionException conflicto : conflictos) {
+            assertEquals(HttpStatus.CONFLICT, conflicto.getStatusCode());
+            assertEquals(paquete.getCodigoPaquete(), conflicto.getCodigoPaquete());
+            assertNotNull(conflicto.getVersionActual(), "el 409 lleva la versión vigente");
+            assertTrue(conflicto.getVersionActual() > paquete.getVersion()
+                            && conflicto.getVersionActual() <= actualizado.getVersion(),
+                    "la versión del 409 es una que otro cambio confirmó");
+            assertEquals("\"" + paquete.getId() + "-" + conflicto.getVersionActual() + "\"",
+                    conflicto.getHeaders().getETag());
+        }
+
+        List<HistorialEstado> historial = historialEstadoRepository.findByIdPaquete_Id(paquete.getId());
+        assertEquals(confirmados, historial.size(),
+                "cada cambio confirmado se registra una sola vez y los rechazados no dejan historial");
+
+        // Todas tienen la misma fecha: el último confirmado es el de mayor orden de registro
+        // (los IDs salen de bloques reservados y no siguen ese orden)
+        HistorialEstado ultimo = historial.stream()
+                .max(Comparator.comparing(HistorialEstado::getOrdenRegistro))
+                .orElseThrow();
+        assertEquals(ultimo.getIdEstado().getId(), actualizado.getIdEstadoActual().getId(),
+                "el estado actual debe ser el del último historial");
+        assertEquals(paquete.getVersion() + confirmados, actualizado.getVersion(),
+                "cada cambio confirmado incrementa la versión exactamente en uno");
+    }
+
+    @Test
+    void conReintentosParaCadaEscanerConfirmanTodos() throws Exception {
+        crearEstado("EN_PLATAFORMA");
+        crearEstado("EN_VEHICULO");
+        Paquete paquete = crearPaquete();
+
+        // Cada intento fallido implica que otro escáner confirmó, así que con tantos
+        // intentos como escáneres ninguno puede agotarlos
+        Transiciones resultado = transicionarALaVez(paquete, intentosMaximos, "EN_PLATAFORMA", "EN_VEHICULO");
+
+        assertEquals(intentosMaximos, resultado.confirmados(), "ningún cambio debe responder 409");
+        assertTrue(resultado.conflictos().isEmpty());
+        assertEquals(intentosMaximos, historialEstadoRepository.findByIdPaquete_Id(paquete.getId()).size());
+        assertEquals(paquete.getVersion() + intentosMaximos,
+                paqueteRepository.findById(paquete.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void repetirElEstadoActualTambienIncrementaLaVersionUnaVez() {
+        crearEstado("EN_REPARTO");
+        Paquete paquete = crearPaquete();
+
+        paqueteService.actualizarEstado(paquete.getCodigoPaquete(), "EN_REPARTO");
+        long version = paqueteRepository.findById(paquete.getId()).orElseThrow().getVersion();
+        assertEquals(paquete.getVersion() + 1, version);
+
+        // Mismo estado: no cambia ninguna columna, pero el historial sí y el ETag debe cambiar
+        paqueteService.actualizarEstado(paquete.getCodigoPaquete(), "EN_REPARTO");
+        assertEquals(version + 1, paqueteRepository.findById(paquete.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    void aIgualFechaGanaElUltimoRegistradoAunqueTengaMenorId() {
+        Estado enBodega = crearEstado("RECIBIDO_EN_BODEGA");
+        Estado enRuta = crearEstado("DESPACHADO");
+        Paquete paquete = crearPaquete();
+
+        // Otra instancia insertó después con un ID de un bloque reservado antes
+        jdbcTemplate.update("INSERT INTO historial_estados (id_historia_estadol, id_paquete, id_estado, fecha_hora) "
+                + "VALUES (?, ?, ?, CURRENT_DATE)", 2_000_000_000, paquete.getId(), enBodega.getId());
+        jdbcTemplate.update("INSERT INTO historial_estados (id_historia_estadol, id_paquete, id_estado, fecha_hora) "
+                + "VALUES (?, ?, ?, CURRENT_DATE)", 1_999_999_000, paquete.getId(), enRuta.getId());
+
+        assertEquals(enRuta.getId(), historialEstadoRepository
+                .findTopByIdPaquete_IdOrderByFechaHoraDescOrdenRegistroDesc(paquete.getId())
+                .orElseThrow().getIdEstado().getId());
+
+        transactionTemplate.executeWithoutResult(estado -> paqueteRepository.recalcularEstadoActualDesdeHistorial());
+        assertEquals(enRuta.getId(),
+                paqueteRepository.findById(paquete.getId()).orElseThrow().getIdEstadoActual().getId());
+    }
+
+    @Test
+    void elLoteNoPisaElEstadoDeUnHistorialPosterior() {
+        Estado entregado = crearEstado("ENTREGADO_AL_CLIENTE");
+        Estado enBodega = crearEstado("REINGRESADO_A_BODEGA");
+        Paquete entregadoManana = crearPaquete();
+        Paquete sinHistorial = crearPaquete();
+        jdbcTemplate.update("INSERT INTO historial_estados (id_paquete, id_estado, fecha_hora) VALUES (?, ?, ?)",
+                entregadoManana.getId(), entregado.getId(), LocalDate.now().plusDays(1));
+        jdbcTemplate.update("UPDATE paquetes SET id_estado_actual = ? WHERE id_paquete = ?",
+                entregado.getId(), entregadoManana.getId());
+
+        // Carga atrasada con la fecha de hoy
+        historialEstadoService.registrarLote(List.of(entregadoManana.getId(), sinHistorial.getId()),
+                enBodega, LocalDate.now());
+
+        Paquete conservado = paqueteRepository.findById(entregadoManana.getId()).orElseThrow();
+        assertEquals(entregado.getId(), conservado.getIdEstadoActual().getId(),
+                "el historial de fecha posterior sigue siendo el estado actual");
+        assertEquals(entregadoManana.getVersion() + 1, conservado.getVersion(),
+                "su historial cambió, así que su versión también");
+        Paquete actualizado = paqueteRepository.findById(sinHistorial.getId()).orElseThrow();
+        assertEquals(enBodega.getId(), actualizado.getIdEstadoActual().getId());
+        assertEquals(sinHistorial.getVersion() + 1, actualizado.getVersion());
+    }
+
+    // Lanza los cambios de estado a la vez, alternando entre los dos estados indicados
+    private Transiciones transicionarALaVez(Paquete paquete, int transiciones, String estadoPar, String estadoImpar)
+            throws Exception {
+        ExecutorService escaneres = Executors.newFixedThreadPool(transiciones);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> cambios = new ArrayList<>();
+        List<ConflictoVersionException> conflictos = new ArrayList<>();
+        int confirmados = 0;
+        try {
+            for (int i = 0; i < transiciones; i++) {
+                String nuevoEstado = i % 2 == 0 ? estadoPar : estadoImpar;
+                cambios.add(escaneres.submit(() -> {
+                    salida.await();
+                    return paqueteService.actualizarEstado(paquete.getCodigoPaquete(), nuevoEstado);
+                }));
+            }
+            salida.countDown();
+            for (Future<?> cambio : cambios) {
+                try {
+                    cambio.get(60, TimeUnit.SECONDS);
+                    confirmados++;
+                } catch (ExecutionException e) {
+                    conflictos.add(assertInstanceOf(ConflictoVersionException.class, e.getCause()));
+                }
+            }
+        } finally {
+            escaneres.shutdownNow();
+        }
+        return new Transiciones(confirmados, conflictos);
+    }
+
+    private record Transiciones(int confirmados, List<ConflictoVersionException> conflictos) {
+    }
+
+    private Estado crearEstado(String nombre) {
+        Estado estado = new Estado();
+        estado.setNombreEstado(nombre);
+        return estadoService.save(estado);
+    }
+
+    private Paquete crearPaquete() {
+        Paquete paquete = new Paquete();
+        paquete.setCodigoPaquete("PKG-" + UUID.randomUUID());
+        paquete.setRemitente("Remitente");
+        paquete.setDestinatario("Destinatario");
+        paquete.setDestino("Bogotá");
+        paquete.setFechaRegistro(LocalDate.now());
+        return paqueteRepository.save(paquete);
+    }
+}
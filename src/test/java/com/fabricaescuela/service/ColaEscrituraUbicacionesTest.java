@@ -0,0 +1,140 @@
+package com.fabricaescuela.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Ninguna ubicación respondida con 202 se pierde por una falla que no sea suya:
+ * las transitorias se reintentan, una fila inválida no arrastra al resto de su
+ * lote y lo que se aceptó mientras se apagaba también se guarda.
+ */
+class ColaEscrituraUbicacionesTest {
+
+    private static final int ID_PAQUETE_BORRADO = 7;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final EscritorFalso escritorFalso = new EscritorFalso();
+    private ColaEscrituraUbicaciones cola;
+
+    @AfterEach
+    void detener() {
+        if (cola != null && cola.isRunning()) {
+            cola.stop();
+        }
+    }
+
+    @Test
+    void unaFilaInvalidaSoloDescartaEsaFila() {
+        escritorFalso.idRechazado = ID_PAQUETE_BORRADO;
+        iniciar(10);
+
+        for (int id = 1; id <= 10; id++) {
+            cola.encolar(ubicacion(id));
+        }
+        cola.stop();
+
+        assertThat(escritorFalso.guardadas).hasSize(9)
+                .noneMatch(u -> u.idPaquete() == ID_PAQUETE_BORRADO);
+        assertThat(descartadas()).isEqualTo(1);
+    }
+
+    @Test
+    void reintentaLasFallasTransitorias() {
+        escritorFalso.fallasTransitorias.set(2);
+        iniciar(10);
+
+        for (int id = 1; id <= 10; id++) {
+            cola.encolar(ubicacion(id));
+        }
+        cola.stop();
+
+        assertThat(escritorFalso.guardadas).hasSize(10);
+        assertThat(descartadas()).isZero();
+    }
+
+    @Test
+    void guardaTodoLoAceptadoMientrasSeApaga() throws Exception {
+        iniciar(100);
+        AtomicInteger aceptadas = new AtomicInteger();
+        CountDownLatch enCurso = new CountDownLatch(8);
+
+        try (ExecutorService productores = Executors.newFixedThreadPool(8)) {
+            for (int p = 0; p < 8; p++) {
+                productores.submit(() -> {
+                    enCurso.countDown();
+                    for (int id = 1; ; id++) {
+                        try {
+                            cola.encolar(ubicacion(id));
+                            aceptadas.incrementAndGet();
+                        } catch (ColaLlenaException e) {
+                            if (!cola.isRunning()) {
+                                return;
+                            }
+                        }
+                    }
+                });
+            }
+            enCurso.await();
+            Thread.sleep(50);
+            cola.stop();
+        }
+
+        assertThat(aceptadas.get()).isPositive();
+        assertThat(escritorFalso.guardadas).hasSize(aceptadas.get());
+    }
+
+    private void iniciar(int tamanoLote) {
+        cola = new ColaEscrituraUbicaciones(escritorFalso, meterRegistry, 1_000, tamanoLote,
+                Duration.ofMillis(20), Duration.ofSeconds(10), 5, Duration.ofMillis(1));
+        cola.start();
+    }
+
+    private double descartadas() {
+        return meterRegistry.counter("inventario.ubicaciones.cola.descartadas").count();
+    }
+
+    private static HistorialUbicacionLoteWriter.UbicacionResuelta ubicacion(int idPaquete) {
+        return new HistorialUbicacionLoteWriter.UbicacionResuelta(idPaquete, "Bodega " + idPaquete, Instant.now());
+    }
+
+    /** Guarda en memoria y falla como lo haría la base de datos, commit por commit. */
+    private static class EscritorFalso extends HistorialUbicacionLoteWriter {
+
+        final Queue<UbicacionResuelta> guardadas = new ConcurrentLinkedQueue<>();
+        final AtomicInteger fallasTransitorias = new AtomicInteger();
+        volatile int idRechazado = -1;
+
+        EscritorFalso() {
+            super(null, null);
+        }
+
+        @Override
+        public int escribir(List<UbicacionResuelta> ubicaciones) {
+            if (fallasTransitorias.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new QueryTimeoutException("canceling statement due to statement timeout");
+            }
+            if (ubicaciones.stream().anyMatch(u -> u.idPaquete() == idRechazado)) {
+                throw new DataIntegrityViolationException("violates foreign key constraint fk_historial_ubicaciones_paquete");
+            }
+            guardadas.addAll(ubicaciones);
+            return ubicaciones.size();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+-- Datos para CargaExtremoAExtremoBenchmarkTest. ${paquetes} se reemplaza antes de ejecutar.
+-- Todo es determinista (sin random()) para que dos corridas usen exactamente los mismos datos.
+-- Por paquete: 3 historiales de estado, 10 ubicaciones y una novedad cada 5 paquetes.
+
+INSERT INTO estados (nombre_estado)
+SELECT v.nombre
+FROM (VALUES ('REGISTRADO'), ('EN_BODEGA'), ('En transito'), ('ENTREGADO')) AS v(nombre)
+WHERE NOT EXISTS (SELECT 1 FROM estados e WHERE e.nombre_estado = v.nombre);
+
+-- Posición 0..3 -> id de estado; la posición del estado actual es (número de paquete % 4)
+CREATE TEMP TABLE carga_estados AS
+SELECT v.posicion, (SELECT min(e.id_estado) FROM estados e WHERE e.nombre_estado = v.nombre) AS id_estado
+FROM (VALUES (0, 'REGISTRADO'), (1, 'EN_BODEGA'), (2, 'En transito'), (3, 'ENTREGADO')) AS v(posicion, nombre);
+
+INSERT INTO paquetes (codigo_paquete, remitente, destinatario, fecha_registro, destino, id_estado_actual,
+                      id_cliente_remitente, id_cliente_destinatario, id_empleado_responsable)
+SELECT 'CARGA-' || lpad(i::text, 8, '0'),
+       'Remitente ' || (i % 5000),
+       'Destinatario ' || (i % 20000),
+       DATE '2024-01-01' + (i % 600),
+       (ARRAY['Bogotá', 'Medellín', 'Cali', 'Barranquilla', 'Cartagena', 'Bucaramanga', 'Pereira', 'Manizales'])[1 + i % 8],
+       ce.id_estado,
+       i % 5000,
+       i % 20000,
+       i % 300
+FROM generate_series(1, ${paquetes}) AS i
+JOIN carga_estados ce ON ce.posicion = i % 4;
+
+CREATE TEMP TABLE carga_paquetes AS
+SELECT id_paquete, substr(codigo_paquete, 7)::int AS numero, fecha_registro
+FROM paquetes
+WHERE codigo_paquete LIKE 'CARGA-%';
+
+-- IDs explícitos: con la secuencia (INCREMENT BY 50) cada fila consumiría 50 valores
+INSERT INTO historial_estados (id_historia_estadol, id_paquete, id_estado, fecha_hora)
+SELECT (SELECT coalesce(max(id_historia_estadol), 0) FROM historial_estados)
+           + row_number() OVER (ORDER BY cp.numero, paso),
+       cp.id_paquete,
+       ce.id_estado,
+       cp.fecha_registro + paso
+FROM carga_paquetes cp
+CROSS JOIN generate_series(0, 2) AS paso
+JOIN carga_estados ce ON ce.posicion = CASE WHEN paso = 2 THEN cp.numero % 4 ELSE paso END;
+
+-- Mismo margen que V7: el primer bloque que reserve Hibernate empieza después del máximo
+SELECT setval('historial_estados_seq', (SELECT max(id_historia_estadol) FROM historial_estados) + 51, false);
+
+INSERT INTO historial_ubicaciones (id_paquete, ubicacion, fecha_hora)
+SELECT cp.id_paquete,
+       to_char(4 + ((cp.numero * 37 + n * 11) % 1000) / 1000.0, 'FM0.00000') || ','
+           || to_char(-74 - ((cp.numero * 53 + n * 17) % 1000) / 1000.0, 'FM00.00000'),
+       cp.fecha_registro + make_interval(hours => 8 + n)
+FROM carga_paquetes cp
+CROSS JOIN generate_series(1, 10) AS n;
+
+INSERT INTO novedades (id_paquete, tipo_novedad, descripcion, fecha_hora)
+SELECT cp.id_paquete,
+       (ARRAY['RETRASO', 'DIRECCION_INCORRECTA', 'DESTINATARIO_AUSENTE', 'DANO'])[1 + cp.numero % 4],
+       'Novedad de carga ' || cp.numero,
+       cp.fecha_registro + 1
+FROM carga_paquetes cp
+WHERE cp.numero % 5 = 0;
+
+ANALYZE estados;
+ANALYZE paquetes;
+ANALYZE historial_estados;
+ANALYZE historial_ubicaciones;
+ANALYZE novedades;